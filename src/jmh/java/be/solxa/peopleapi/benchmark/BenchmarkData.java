@@ -0,0 +1,40 @@
+package be.solxa.peopleapi.benchmark;
+
+import be.solxa.peopleapi.dto.PersonDTO;
+import be.solxa.peopleapi.model.Person;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Deterministic persons shared by the benchmarks: 1,000 distinct last names, unique first names.
+ */
+final class BenchmarkData {
+
+    static final int LAST_NAMES = 1000;
+
+    private BenchmarkData() {
+    }
+
+    static List<Person> persons(int count) {
+        List<Person> persons = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Person person = new Person();
+            person.setId(new UUID(0, i));
+            person.setFirstName("First" + i);
+            person.setLastName("Name" + i % LAST_NAMES);
+            person.setVersion(0L);
+            persons.add(person);
+        }
+        return persons;
+    }
+
+    static List<PersonDTO> dtos(int count) {
+        List<PersonDTO> dtos = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            dtos.add(new PersonDTO(new UUID(0, i), "First" + i, "Name" + i % LAST_NAMES));
+        }
+        return dtos;
+    }
+}
@@ -0,0 +1,48 @@
+package be.solxa.peopleapi.benchmark;
+
+import be.solxa.peopleapi.model.NameNormalizer;
+import be.solxa.peopleapi.model.Person;
+import be.solxa.peopleapi.search.NameTrie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-10 name suggestions the way the suggest endpoint serves one keystroke, from a short and a longer prefix.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NameTrieBenchmark {
+
+    @Param({"10000", "1000000"})
+    int size;
+
+    private NameTrie lastNames;
+
+    @Setup
+    public void setUp() {
+        lastNames = new NameTrie(size);
+        for (Person person : BenchmarkData.persons(size)) {
+            lastNames.put(person.getId(), NameNormalizer.normalize(person.getLastName()), person.getLastName());
+        }
+    }
+
+    @Benchmark
+    public List<NameTrie.Suggestion> shortPrefix() {
+        return lastNames.top("na", 10);
+    }
+
+    @Benchmark
+    public List<NameTrie.Suggestion> longPrefix() {
+        return lastNames.top("name12", 10);
+    }
+}
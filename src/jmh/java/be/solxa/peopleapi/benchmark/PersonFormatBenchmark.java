@@ -0,0 +1,92 @@
+package be.solxa.peopleapi.benchmark;
+
+import be.solxa.peopleapi.dto.PersonDTO;
+import be.solxa.peopleapi.mapper.PersonJsonWriter;
+import be.solxa.peopleapi.model.Person;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.type.CollectionType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding a list response in each format GET /api/persons negotiates: JSON, CBOR and Smile,
+ * with mappers built like the message converters' (see WebConfig). Encoding is measured both with data binding
+ * and with PersonJsonWriter, which the search endpoint uses. The payload size of each format is printed at
+ * setup; the binary ones carry ids as 16 bytes instead of 36 characters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PersonFormatBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    String format;
+
+    @Param({"100", "10000"})
+    int size;
+
+    private List<PersonDTO> dtos;
+    private List<Person> persons;
+    private ObjectWriter listWriter;
+    private ObjectReader listReader;
+    private PersonJsonWriter personJsonWriter;
+    private MediaType mediaType;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        dtos = BenchmarkData.dtos(size);
+        persons = BenchmarkData.persons(size);
+        ObjectMapper objectMapper = switch (format) {
+            case "json" -> Jackson2ObjectMapperBuilder.json().build();
+            case "cbor" -> Jackson2ObjectMapperBuilder.cbor().build();
+            case "smile" -> Jackson2ObjectMapperBuilder.smile().build();
+            default -> throw new IllegalArgumentException(format);
+        };
+        mediaType = switch (format) {
+            case "json" -> MediaType.APPLICATION_JSON;
+            case "cbor" -> MediaType.APPLICATION_CBOR;
+            default -> PersonJsonWriter.APPLICATION_SMILE;
+        };
+        CollectionType listType = objectMapper.getTypeFactory().constructCollectionType(List.class, PersonDTO.class);
+        listWriter = objectMapper.writerFor(listType);
+        listReader = objectMapper.readerFor(listType);
+        personJsonWriter = new PersonJsonWriter(Jackson2ObjectMapperBuilder.json().build());
+
+        encoded = listWriter.writeValueAsBytes(dtos);
+        System.out.printf("%n%s, %d persons: %d bytes, %.1f bytes per person%n",
+                format, size, encoded.length, encoded.length / (double) size);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return listWriter.writeValueAsBytes(dtos);
+    }
+
+    @Benchmark
+    public byte[] encodeWithPersonJsonWriter() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(encoded.length);
+        personJsonWriter.writeArray(mediaType, persons, out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public List<PersonDTO> decode() throws IOException {
+        return listReader.readValue(encoded);
+    }
+}
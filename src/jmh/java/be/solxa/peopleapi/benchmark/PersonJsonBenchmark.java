@@ -0,0 +1,102 @@
+package be.solxa.peopleapi.benchmark;
+
+import be.solxa.peopleapi.dto.PersonDTO;
+import be.solxa.peopleapi.mapper.PersonJsonWriter;
+import be.solxa.peopleapi.mapper.PersonMapper;
+import be.solxa.peopleapi.model.Person;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Serializing a list response to bytes with an ObjectMapper configured like Spring Boot's, and writing a list
+ * response the way PersonController does: before, mapping the entities to DTOs and data binding them; now,
+ * with PersonJsonWriter straight from the entities. Run with the GC profiler (the benchmark profile default)
+ * for allocations per operation; the response size is printed at setup, it is the same for both.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PersonJsonBenchmark {
+
+    @Param({"100", "10000"})
+    int size;
+
+    private List<PersonDTO> dtos;
+    private ObjectMapper objectMapper;
+    private ObjectWriter listWriter;
+    private List<Person> persons;
+    private final PersonMapper mapper = new PersonMapper();
+    private PersonJsonWriter personJsonWriter;
+    private final CountingOutputStream out = new CountingOutputStream();
+
+    @Setup
+    public void setUp() throws IOException {
+        dtos = BenchmarkData.dtos(size);
+        persons = BenchmarkData.persons(size);
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        listWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, PersonDTO.class));
+        personJsonWriter = new PersonJsonWriter(objectMapper);
+
+        personJsonWriter.writeArray(persons, out);
+        System.out.printf("%n%d persons: %d response bytes, %.1f bytes per person%n",
+                size, out.count, out.count / (double) size);
+    }
+
+    @Benchmark
+    public byte[] writeList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(dtos);
+    }
+
+    @Benchmark
+    public byte[] writeListWithTypedWriter() throws JsonProcessingException {
+        return listWriter.writeValueAsBytes(dtos);
+    }
+
+    @Benchmark
+    public long writeResponseFromDTOs() throws IOException {
+        out.count = 0;
+        List<PersonDTO> mapped = persons.stream()
+                .map(mapper::toDTO)
+                .collect(Collectors.toList());
+        listWriter.writeValue(out, mapped);
+        return out.count;
+    }
+
+    @Benchmark
+    public long writeResponseWithGenerator() throws IOException {
+        out.count = 0;
+        personJsonWriter.writeArray(persons, out);
+        return out.count;
+    }
+
+    // Counts and drops the bytes, so no response buffer growth shows up in the allocations
+    private static final class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package be.solxa.peopleapi.benchmark;
+
+import be.solxa.peopleapi.dto.PersonDTO;
+import be.solxa.peopleapi.mapper.PersonMapper;
+import be.solxa.peopleapi.model.Person;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Mapping a whole result list, the way PersonController does for every list response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PersonMapperBenchmark {
+
+    @Param({"100", "10000"})
+    int size;
+
+    private final PersonMapper mapper = new PersonMapper();
+    private List<Person> persons;
+    private List<PersonDTO> dtos;
+
+    @Setup
+    public void setUp() {
+        persons = BenchmarkData.persons(size);
+        dtos = BenchmarkData.dtos(size);
+    }
+
+    @Benchmark
+    public List<PersonDTO> toDTO() {
+        return persons.stream()
+                .map(mapper::toDTO)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Person> toEntity() {
+        return dtos.stream()
+                .map(mapper::toEntity)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,90 @@
+package be.solxa.peopleapi.benchmark;
+
+import be.solxa.peopleapi.PeopleApiApplication;
+import be.solxa.peopleapi.model.Person;
+import be.solxa.peopleapi.service.PersonService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PersonService against a seeded in-memory H2, through the full Spring context (transactions, JPA).
+ * With {@code cached=false} both the id and the search caches are off, so every call reaches the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PersonServiceBenchmark {
+
+    private static final int ROWS = 100_000;
+
+    @Param({"false", "true"})
+    boolean cached;
+
+    private ConfigurableApplicationContext context;
+    private PersonService personService;
+    private List<UUID> ids;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(PeopleApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:jmh;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "people.cache.person.enabled=" + cached,
+                        "people.cache.search.enabled=" + cached,
+                        "logging.level.root=WARN")
+                .run();
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("INSERT INTO person (id, first_name, last_name, first_name_search, last_name_search, version) " +
+                "SELECT RANDOM_UUID(), 'First' || X, 'Name' || MOD(X, " + BenchmarkData.LAST_NAMES + "), " +
+                "'first' || X, 'name' || MOD(X, " + BenchmarkData.LAST_NAMES + "), 0 " +
+                "FROM SYSTEM_RANGE(1, " + ROWS + ")");
+        jdbcTemplate.execute("ANALYZE");
+        ids = jdbcTemplate.queryForList("SELECT id FROM person", UUID.class);
+        personService = context.getBean(PersonService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Person> searchWithoutFilters() {
+        return personService.search(null, null);
+    }
+
+    @Benchmark
+    public List<Person> searchByLastName() {
+        return personService.search(null, "Name421");
+    }
+
+    @Benchmark
+    public List<Person> searchByFirstAndLastName() {
+        return personService.search("First42", "Name42");
+    }
+
+    @Benchmark
+    public Optional<Person> getPersonById() {
+        return personService.getPersonById(ids.get(ThreadLocalRandom.current().nextInt(ids.size())));
+    }
+}
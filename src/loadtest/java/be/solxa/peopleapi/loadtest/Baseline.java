@@ -0,0 +1,86 @@
+package be.solxa.peopleapi.loadtest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * The p99 latency and throughput of a reference run, per operation and in total, stored as a properties file
+ * ({@code <operation>.p99-ms} and {@code <operation>.throughput}) next to the sources so it is versioned
+ * with the code it measured.
+ */
+final class Baseline {
+
+    record Measurement(double p99Ms, double throughput) {
+    }
+
+    private final Map<String, Measurement> measurements;
+
+    Baseline(Map<String, Measurement> measurements) {
+        this.measurements = new TreeMap<>(measurements);
+    }
+
+    static Baseline load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            properties.load(reader);
+        }
+
+        Map<String, Measurement> measurements = new TreeMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            if (name.endsWith(".p99-ms")) {
+                String operation = name.substring(0, name.length() - ".p99-ms".length());
+                measurements.put(operation, new Measurement(
+                        Double.parseDouble(properties.getProperty(name)),
+                        Double.parseDouble(properties.getProperty(operation + ".throughput", "0"))));
+            }
+        }
+        return new Baseline(measurements);
+    }
+
+    void store(Path file, String comment) throws IOException {
+        Properties properties = new Properties();
+        measurements.forEach((operation, measurement) -> {
+            properties.setProperty(operation + ".p99-ms", String.format(Locale.ROOT, "%.3f", measurement.p99Ms()));
+            properties.setProperty(operation + ".throughput", String.format(Locale.ROOT, "%.1f", measurement.throughput()));
+        });
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            properties.store(writer, comment);
+        }
+    }
+
+    /**
+     * Regressions of the given run against this baseline, empty if there are none. An operation's p99 may grow
+     * by {@code p99Tolerance} and its throughput drop by {@code throughputTolerance} (both fractions). Operations
+     * missing from either side are not compared.
+     */
+    List<String> regressions(Baseline run, double p99Tolerance, double throughputTolerance) {
+        List<String> regressions = new ArrayList<>();
+        measurements.forEach((operation, expected) -> {
+            Measurement actual = run.measurements.get(operation);
+            if (actual == null) {
+                return;
+            }
+            double p99Limit = expected.p99Ms() * (1 + p99Tolerance);
+            if (actual.p99Ms() > p99Limit) {
+                regressions.add(String.format("%s p99 %.2f ms exceeds %.2f ms (baseline %.2f ms +%.0f%%)",
+                        operation, actual.p99Ms(), p99Limit, expected.p99Ms(), p99Tolerance * 100));
+            }
+            double throughputLimit = expected.throughput() * (1 - throughputTolerance);
+            if (actual.throughput() < throughputLimit) {
+                regressions.add(String.format("%s throughput %.1f req/s below %.1f req/s (baseline %.1f req/s -%.0f%%)",
+                        operation, actual.throughput(), throughputLimit, expected.throughput(), throughputTolerance * 100));
+            }
+        });
+        return regressions;
+    }
+}
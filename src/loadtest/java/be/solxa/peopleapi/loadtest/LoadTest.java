@@ -0,0 +1,232 @@
+package be.solxa.peopleapi.loadtest;
+
+import be.solxa.peopleapi.PeopleApiApplication;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Starts the application on a random port against an in-memory H2 seeded with {@code loadtest.rows} persons,
+ * then sends the {@code loadtest.mix} of requests at a fixed arrival rate of {@code loadtest.rate} per second.
+ * <p>
+ * Arrivals follow the schedule whether or not earlier requests finished (an open workload), and latency is
+ * measured from the scheduled start, so a stalled server shows up in the percentiles instead of silently
+ * lowering the offered load. Latencies go into one HdrHistogram per operation; the percentile distributions
+ * are written to {@code loadtest.report-dir}.
+ * <p>
+ * The run is compared to the baseline in {@code loadtest.baseline} and exits with status 1 when p99 or
+ * throughput regressed beyond the tolerances, or too many requests failed. Without a baseline, or with
+ * {@code loadtest.record-baseline=true}, the run is stored as the new baseline instead; its header records
+ * the rate and mix, and later runs should use the same ones on the same machine. Everything runs in this JVM
+ * on the local machine; nothing is downloaded or contacted.
+ */
+public final class LoadTest {
+
+    private static final int LAST_NAMES = 1000;
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final String TOTAL = "total";
+
+    private record Settings(int rate, Duration warmup, Duration duration, int rows, String mix, Path baseline,
+                            boolean recordBaseline, double p99Tolerance, double throughputTolerance,
+                            double maxErrorRate, Path reportDir) {
+
+        static Settings fromSystemProperties() {
+            return new Settings(
+                    Integer.getInteger("loadtest.rate", 200),
+                    duration("loadtest.warmup", "15s"),
+                    duration("loadtest.duration", "60s"),
+                    Integer.getInteger("loadtest.rows", 10_000),
+                    System.getProperty("loadtest.mix", "get:60,search:20,create:10,update:5,delete:5"),
+                    Path.of(System.getProperty("loadtest.baseline", "src/loadtest/baseline.properties")),
+                    Boolean.getBoolean("loadtest.record-baseline"),
+                    Double.parseDouble(System.getProperty("loadtest.p99-tolerance", "0.20")),
+                    Double.parseDouble(System.getProperty("loadtest.throughput-tolerance", "0.05")),
+                    Double.parseDouble(System.getProperty("loadtest.max-error-rate", "0.01")),
+                    Path.of(System.getProperty("loadtest.report-dir", "target/loadtest")));
+        }
+
+        private static Duration duration(String name, String defaultValue) {
+            return DurationStyle.detectAndParse(System.getProperty(name, defaultValue));
+        }
+    }
+
+    private static final class Stats {
+        private final Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_NANOS, 3);
+        private final AtomicLong failures = new AtomicLong();
+
+        void record(long nanos, boolean ok) {
+            latencies.recordValue(Math.min(nanos, MAX_LATENCY_NANOS));
+            if (!ok) {
+                failures.incrementAndGet();
+            }
+        }
+    }
+
+    // Elapsed runs until the last response arrived, so a server falling behind the schedule lowers throughput
+    private record Run(Map<String, Stats> stats, long elapsedNanos) {
+    }
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = Settings.fromSystemProperties();
+        Map<Workload.Operation, Integer> mix = Workload.parseMix(settings.mix());
+
+        Run run;
+        try (ConfigurableApplicationContext context = start(settings)) {
+            List<UUID> ids = seed(context.getBean(JdbcTemplate.class), settings.rows());
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .build();
+            Workload workload = new Workload(client, baseUrl, ids, LAST_NAMES, mix);
+
+            System.out.printf(Locale.ROOT, "Warming up for %s at %d req/s%n", settings.warmup(), settings.rate());
+            drive(workload, mix, settings.rate(), settings.warmup());
+            System.out.printf(Locale.ROOT, "Measuring for %s at %d req/s, mix %s%n",
+                    settings.duration(), settings.rate(), settings.mix());
+            run = drive(workload, mix, settings.rate(), settings.duration());
+        }
+
+        Baseline measured = report(run, settings, System.out);
+        System.exit(gate(measured, run.stats(), settings) ? 0 : 1);
+    }
+
+    private static ConfigurableApplicationContext start(Settings settings) {
+        return new SpringApplicationBuilder(PeopleApiApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.jpa.show-sql=false",
+                        "people.search.phonetic.backfill-on-startup=false",
+                        "logging.level.root=WARN")
+                .run();
+    }
+
+    private static List<UUID> seed(JdbcTemplate jdbcTemplate, int rows) {
+        jdbcTemplate.update("INSERT INTO person (id, first_name, last_name, first_name_search, last_name_search, version) " +
+                "SELECT RANDOM_UUID(), 'First' || X, 'Name' || MOD(X, " + LAST_NAMES + "), " +
+                "'first' || X, 'name' || MOD(X, " + LAST_NAMES + "), 0 FROM SYSTEM_RANGE(1, " + rows + ")");
+        return jdbcTemplate.queryForList("SELECT id FROM person", UUID.class);
+    }
+
+    // Sends one request per scheduled arrival, each on its own virtual thread, for the given duration
+    private static Run drive(Workload workload, Map<Workload.Operation, Integer> mix, int rate, Duration duration) {
+        Map<String, Stats> stats = new LinkedHashMap<>();
+        Map<Workload.Operation, Stats> byOperation = new EnumMap<>(Workload.Operation.class);
+        for (Workload.Operation operation : mix.keySet()) {
+            Stats operationStats = new Stats();
+            byOperation.put(operation, operationStats);
+            stats.put(operation.name().toLowerCase(Locale.ROOT), operationStats);
+        }
+        Stats total = new Stats();
+        stats.put(TOTAL, total);
+
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long arrivals = duration.toNanos() / interval;
+        try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; i < arrivals; i++) {
+                long scheduled = start + i * interval;
+                long wait = scheduled - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                Workload.Operation operation = workload.next();
+                requests.execute(() -> {
+                    boolean ok;
+                    try {
+                        ok = workload.execute(operation);
+                    } catch (Exception e) {
+                        ok = false;
+                    }
+                    long latency = System.nanoTime() - scheduled;
+                    byOperation.get(operation).record(latency, ok);
+                    total.record(latency, ok);
+                });
+            }
+        }
+        return new Run(stats, System.nanoTime() - start);
+    }
+
+    private static Baseline report(Run run, Settings settings, PrintStream out) throws IOException {
+        double seconds = run.elapsedNanos() / 1e9;
+        Files.createDirectories(settings.reportDir());
+        Map<String, Baseline.Measurement> measurements = new LinkedHashMap<>();
+
+        out.printf(Locale.ROOT, "%-8s %9s %7s %10s %9s %9s %9s %9s %9s%n",
+                "", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map.Entry<String, Stats> entry : run.stats().entrySet()) {
+            Histogram latencies = entry.getValue().latencies;
+            long failures = entry.getValue().failures.get();
+            double throughput = (latencies.getTotalCount() - failures) / seconds;
+            double p99 = millis(latencies.getValueAtPercentile(99));
+            measurements.put(entry.getKey(), new Baseline.Measurement(p99, throughput));
+
+            out.printf(Locale.ROOT, "%-8s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    entry.getKey(), latencies.getTotalCount(), failures, throughput,
+                    millis(latencies.getValueAtPercentile(50)), millis(latencies.getValueAtPercentile(90)), p99,
+                    millis(latencies.getValueAtPercentile(99.9)), millis(latencies.getMaxValue()));
+            try (PrintStream hgrm = new PrintStream(
+                    Files.newOutputStream(settings.reportDir().resolve(entry.getKey() + ".hgrm")))) {
+                latencies.outputPercentileDistribution(hgrm, 1e6);
+            }
+        }
+        return new Baseline(measurements);
+    }
+
+    private static boolean gate(Baseline measured, Map<String, Stats> stats, Settings settings) throws IOException {
+        Stats total = stats.get(TOTAL);
+        double errorRate = total.failures.get() / (double) Math.max(1, total.latencies.getTotalCount());
+        if (errorRate > settings.maxErrorRate()) {
+            System.out.printf(Locale.ROOT, "FAILED: %.2f%% of the requests failed, at most %.2f%% allowed%n",
+                    errorRate * 100, settings.maxErrorRate() * 100);
+            return false;
+        }
+
+        if (settings.recordBaseline() || !Files.exists(settings.baseline())) {
+            measured.store(settings.baseline(), String.format(Locale.ROOT, "Load test baseline: %d req/s for %s, mix %s",
+                    settings.rate(), settings.duration(), settings.mix()));
+            System.out.println("Recorded the run as baseline in " + settings.baseline());
+            return true;
+        }
+
+        List<String> regressions = Baseline.load(settings.baseline())
+                .regressions(measured, settings.p99Tolerance(), settings.throughputTolerance());
+        if (regressions.isEmpty()) {
+            System.out.println("No regression against " + settings.baseline());
+            return true;
+        }
+        System.out.println("FAILED: regressions against " + settings.baseline());
+        regressions.forEach(regression -> System.out.println("  " + regression));
+        return false;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -0,0 +1,144 @@
+package be.solxa.peopleapi.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The mix of requests the load test sends: each arrival picks an operation by its weight and sends it
+ * to the person API. Deletes remove persons created during the run, so the seeded persons that gets and
+ * updates pick from stay in place.
+ */
+final class Workload {
+
+    enum Operation {
+        GET, SEARCH, CREATE, UPDATE, DELETE
+    }
+
+    private static final Pattern CREATED_ID = Pattern.compile("\"id\"\\s*:\\s*\"([0-9a-f-]{36})\"");
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final List<UUID> seededIds;
+    private final int lastNames;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final Queue<UUID> createdIds = new ConcurrentLinkedQueue<>();
+
+    Workload(HttpClient client, String baseUrl, List<UUID> seededIds, int lastNames, Map<Operation, Integer> mix) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.seededIds = seededIds;
+        this.lastNames = lastNames;
+        this.operations = mix.keySet().toArray(new Operation[0]);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += mix.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    /**
+     * Parses a mix such as {@code get:60,search:20,create:10,update:5,delete:5}.
+     */
+    static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String part : value.split(",")) {
+            String[] entry = part.trim().split(":");
+            if (entry.length != 2) {
+                throw new IllegalArgumentException("Expected operation:weight in the mix, got: " + part);
+            }
+            int weight = Integer.parseInt(entry[1].trim());
+            if (weight > 0) {
+                mix.put(Operation.valueOf(entry[0].trim().toUpperCase(Locale.ROOT)), weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("The mix has no operation with a positive weight: " + value);
+        }
+        return mix;
+    }
+
+    Operation next() {
+        int pick = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Sends the operation and returns whether the response had the expected status. A delete with nothing
+     * created to delete yet sends a create instead.
+     */
+    boolean execute(Operation operation) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return switch (operation) {
+            case GET -> send(get("/api/persons/" + randomSeededId(random))) == 200;
+            case SEARCH -> send(get("/api/persons?lastName=Name" + random.nextInt(lastNames))) == 200;
+            case CREATE -> create(random);
+            case UPDATE -> send(HttpRequest.newBuilder(uri("/api/persons/" + randomSeededId(random)))
+                    .header("Content-Type", "application/json")
+                    .PUT(json(random))
+                    .build()) == 200;
+            case DELETE -> delete(random);
+        };
+    }
+
+    private boolean create(ThreadLocalRandom random) throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri("/api/persons"))
+                .header("Content-Type", "application/json")
+                .POST(json(random))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        Matcher id = CREATED_ID.matcher(response.body());
+        if (id.find()) {
+            createdIds.add(UUID.fromString(id.group(1)));
+        }
+        return response.statusCode() == 201 || response.statusCode() == 202;
+    }
+
+    private boolean delete(ThreadLocalRandom random) throws Exception {
+        UUID id = createdIds.poll();
+        if (id == null) {
+            // Nothing of ours to delete yet; keep the load level rather than skipping the arrival
+            return create(random);
+        }
+        return send(HttpRequest.newBuilder(uri("/api/persons/" + id)).DELETE().build()) == 204;
+    }
+
+    private UUID randomSeededId(ThreadLocalRandom random) {
+        return seededIds.get(random.nextInt(seededIds.size()));
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(uri(path)).build();
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+
+    private static HttpRequest.BodyPublisher json(ThreadLocalRandom random) {
+        int n = random.nextInt(1_000_000);
+        return HttpRequest.BodyPublishers.ofString(
+                "{\"firstName\":\"Load" + n + "\",\"lastName\":\"Test" + n % 1000 + "\"}");
+    }
+
+    private int send(HttpRequest request) throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,202 @@
+package be.solxa.peopleapi;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+@Data
+@Validated
+@ConfigurationProperties(prefix = "people")
+public class PeopleApiProperties {
+
+    @Valid
+    private Batch batch = new Batch();
+
+    private Search search = new Search();
+
+    private Caches cache = new Caches();
+
+    private Bulkhead bulkhead = new Bulkhead();
+
+    private Admission admission = new Admission();
+
+    private WriteBehind writeBehind = new WriteBehind();
+
+    private Snapshot snapshot = new Snapshot();
+
+    @Data
+    public static class Batch {
+        // Number of persons flushed (and then cleared from the persistence context) at a time
+        @Min(1)
+        private int chunkSize = 1000;
+    }
+
+    @Data
+    public static class Search {
+        private Trigram trigram = new Trigram();
+
+        private Phonetic phonetic = new Phonetic();
+
+        private Suggest suggest = new Suggest();
+    }
+
+    @Data
+    public static class Trigram {
+        // Serve contains searches from the in-memory trigram index instead of scanning the table
+        private boolean enabled = false;
+
+        // Above this many matches the index gives up and the search falls back to the database
+        private int maxResults = 10_000;
+
+        // Number of independently locked shards, 0 for twice the number of processors
+        private int shards = 0;
+    }
+
+    @Data
+    public static class Phonetic {
+        // Fill in the phonetic codes of rows written before they existed, in the background once ready
+        private boolean backfillOnStartup = true;
+
+        private int backfillThreads = 4;
+
+        // Rows read and updated per transaction
+        private int backfillChunkSize = 1000;
+    }
+
+    @Data
+    public static class Suggest {
+        // Serve name suggestions from in-memory tries instead of grouping the matching rows
+        private boolean enabled = true;
+    }
+
+    @Data
+    public static class Caches {
+        private EntityCache person = new EntityCache();
+
+        private SearchCache search = new SearchCache();
+
+        private Coalescing singleFlight = new Coalescing();
+    }
+
+    @Data
+    public static class EntityCache {
+        private boolean enabled = true;
+
+        private long maximumSize = 100_000;
+
+        private Duration ttl = Duration.ofMinutes(10);
+
+        // How long a lookup of an unknown id is remembered as not found
+        private Duration negativeTtl = Duration.ofSeconds(5);
+    }
+
+    @Data
+    public static class SearchCache {
+        private boolean enabled = true;
+
+        // Bound on the estimated heap used by all cached result lists together
+        private DataSize maximumWeight = DataSize.ofMegabytes(32);
+
+        // How long after it was loaded an outdated result may still be served while it is refreshed, 0 to never
+        private Duration maxStale = Duration.ofSeconds(2);
+
+        private int refreshThreads = 2;
+    }
+
+    @Data
+    public static class Coalescing {
+        // Let identical concurrent reads share one database call, see PersonReadCoalescer
+        private boolean enabled = true;
+    }
+
+    @Data
+    public static class Bulkhead {
+        // Cap the number of /api/persons requests served at once, see BulkheadFilter
+        private boolean enabled = false;
+
+        // Keep at or below the JDBC pool size so admitted requests never wait on a connection
+        private int maxConcurrent = 20;
+
+        // How long a request waits for a slot before it is turned away with 503
+        private Duration acquireTimeout = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class Admission {
+        // Shed /api/persons requests over adaptive per-compartment limits, see AdmissionControlFilter
+        private boolean enabled = false;
+
+        // The maxima add up to Hikari's default pool of 10 connections; raise them with the pool size
+        private AdmissionLimit search = new AdmissionLimit(1, 1, 2, Duration.ofMillis(500));
+
+        private AdmissionLimit lookup = new AdmissionLimit(3, 2, 5, Duration.ofMillis(50));
+
+        private AdmissionLimit write = new AdmissionLimit(2, 1, 3, Duration.ofMillis(200));
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class AdmissionLimit {
+        private int initialLimit;
+
+        private int minLimit;
+
+        // Keep the sum over the compartments at or below the JDBC pool size to never wait on a connection
+        private int maxLimit;
+
+        // A request slower than this shrinks the limit, faster ones grow it
+        private Duration latencyThreshold;
+
+        // Factor applied to the limit on every slow or failed request
+        private double backoffRatio = 0.9;
+
+        AdmissionLimit(int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold) {
+            this.initialLimit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.latencyThreshold = latencyThreshold;
+        }
+    }
+
+    @Data
+    public static class WriteBehind {
+        // Accept creates with 202 and insert them in the background, see PersonWriteBehind
+        private boolean enabled = false;
+
+        // Persons accepted but not yet written; when full, creates are refused with 503
+        private int queueCapacity = 10_000;
+
+        // A group commit writes up to this many persons...
+        private int batchSize = 500;
+
+        // ...or whatever arrived within this time after the first one
+        private Duration maxDelay = Duration.ofMillis(20);
+
+        // How long a create waits for room in a full queue before it is refused
+        private Duration offerTimeout = Duration.ofMillis(100);
+
+        // Persons that could not be written, kept for /api/admin/write-behind; beyond this the oldest is dropped
+        private int deadLetterCapacity = 1000;
+    }
+
+    @Data
+    public static class Snapshot {
+        // Binary snapshot of the person table, see PersonSnapshotService
+        private String path = "./data/persons.snapshot";
+
+        // Load the snapshot into an empty person table before the web server starts
+        private boolean restoreOnStartup = false;
+
+        // Write a fresh snapshot when the application shuts down
+        private boolean writeOnShutdown = false;
+
+        // Rows per JDBC batch when restoring, and rows fetched at a time when writing
+        private int batchSize = 5000;
+    }
+}
@@ -0,0 +1,64 @@
+package be.solxa.peopleapi;
+
+import be.solxa.peopleapi.web.AdaptiveLimit;
+import be.solxa.peopleapi.web.AdmissionControlFilter;
+import be.solxa.peopleapi.web.BulkheadFilter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.util.Map;
+
+@Configuration
+public class WebConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "people.bulkhead", name = "enabled", havingValue = "true")
+    public FilterRegistrationBean<BulkheadFilter> bulkheadFilter(PeopleApiProperties properties) {
+        PeopleApiProperties.Bulkhead bulkhead = properties.getBulkhead();
+        FilterRegistrationBean<BulkheadFilter> registration = new FilterRegistrationBean<>(
+                new BulkheadFilter(bulkhead.getMaxConcurrent(), bulkhead.getAcquireTimeout()));
+        // Only the endpoints that reach the database, not docs or admin pages
+        registration.addUrlPatterns("/api/persons", "/api/persons/*");
+        return registration;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "people.admission", name = "enabled", havingValue = "true")
+    public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(PeopleApiProperties properties,
+                                                                                 MeterRegistry registry) {
+        PeopleApiProperties.Admission admission = properties.getAdmission();
+        FilterRegistrationBean<AdmissionControlFilter> registration = new FilterRegistrationBean<>(
+                new AdmissionControlFilter(Map.of(
+                        AdmissionControlFilter.Compartment.SEARCH, adaptiveLimit(admission.getSearch()),
+                        AdmissionControlFilter.Compartment.LOOKUP, adaptiveLimit(admission.getLookup()),
+                        AdmissionControlFilter.Compartment.WRITE, adaptiveLimit(admission.getWrite())),
+                        registry));
+        registration.addUrlPatterns("/api/persons", "/api/persons/*");
+        return registration;
+    }
+
+    private static AdaptiveLimit adaptiveLimit(PeopleApiProperties.AdmissionLimit limit) {
+        return new AdaptiveLimit(limit.getInitialLimit(), limit.getMinLimit(), limit.getMaxLimit(),
+                limit.getLatencyThreshold(), limit.getBackoffRatio());
+    }
+
+    // CBOR and Smile next to JSON, configured like the JSON mapper; both carry UUIDs as 16 byte binaries.
+    // They replace the converters Spring MVC would otherwise add with a default mapper.
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
@@ -0,0 +1,109 @@
+package be.solxa.peopleapi.cache;
+
+import be.solxa.peopleapi.PeopleApiProperties;
+import be.solxa.peopleapi.event.PersonChangedEvent;
+import be.solxa.peopleapi.model.Person;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of persons by id, bounded in size and time. Misses are cached too (as empty) for a
+ * shorter time so lookups of unknown ids don't all reach the database.
+ * <p>
+ * Entries are invalidated once a write to the person commits. Loads are atomic per id, so an invalidation
+ * waits for a concurrent load of the same id and then drops what it loaded: no read that starts after
+ * the write completed can see the old row.
+ */
+@Component
+public class PersonCache implements MeterBinder {
+
+    private final boolean enabled;
+    private final Cache<UUID, Optional<Person>> cache;
+
+    @Autowired
+    public PersonCache(PeopleApiProperties properties) {
+        this(properties, Ticker.systemTicker());
+    }
+
+    PersonCache(PeopleApiProperties properties, Ticker ticker) {
+        PeopleApiProperties.EntityCache config = properties.getCache().getPerson();
+        long ttl = config.getTtl().toNanos();
+        long negativeTtl = config.getNegativeTtl().toNanos();
+
+        this.enabled = config.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfter(new Expiry<UUID, Optional<Person>>() {
+                    @Override
+                    public long expireAfterCreate(UUID id, Optional<Person> person, long currentTime) {
+                        return person.isPresent() ? ttl : negativeTtl;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(UUID id, Optional<Person> person, long currentTime, long currentDuration) {
+                        return expireAfterCreate(id, person, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(UUID id, Optional<Person> person, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .ticker(ticker)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached lookup for the id, calling the loader (once, however many threads ask) on a miss.
+     * The loader must return persons no EntityManager manages any more: cached persons are shared between
+     * callers, they must not be modified.
+     */
+    public Optional<Person> get(UUID id, Function<UUID, Optional<Person>> loader) {
+        if (!enabled) {
+            return loader.apply(id);
+        }
+        return cache.get(id, loader);
+    }
+
+    public void invalidate(UUID id) {
+        cache.invalidate(id);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPersonChanged(PersonChangedEvent event) {
+        // Creates too: the id may be remembered as not found
+        invalidate(event.getId());
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new CaffeineCacheMetrics<>(cache, "person", Tags.empty()).bindTo(registry);
+    }
+
+    void cleanUp() {
+        cache.cleanUp();
+    }
+}
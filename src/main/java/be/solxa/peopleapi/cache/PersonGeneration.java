@@ -0,0 +1,43 @@
+package be.solxa.peopleapi.cache;
+
+import be.solxa.peopleapi.event.PersonChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counter bumped after every committed write to the person table. Anything derived from the whole table
+ * remembers the generation it was computed at and is outdated as soon as the counter moved on, so caches
+ * never have to be flushed.
+ */
+@Component
+public class PersonGeneration {
+
+    // Tells the counters of different runs apart, they all start at zero
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong generation = new AtomicLong();
+
+    public long current() {
+        return generation.get();
+    }
+
+    /**
+     * The current generation as a token that is unique across restarts, for use in validators such as ETags.
+     */
+    public String tag() {
+        return tag(generation.get());
+    }
+
+    /**
+     * The token of an earlier generation, for something computed at that generation.
+     */
+    public String tag(long generation) {
+        return epoch + "-" + generation;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPersonChanged(PersonChangedEvent event) {
+        generation.incrementAndGet();
+    }
+}
@@ -0,0 +1,53 @@
+package be.solxa.peopleapi.cache;
+
+import be.solxa.peopleapi.PeopleApiProperties;
+import be.solxa.peopleapi.model.Person;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Lets identical person reads that run at the same time share one database call instead of each running
+ * their own, see {@link SingleFlight}. The caches in front already do this for their own misses; this covers
+ * the reads they don't hold (unfiltered lists, prefix and phonetic searches) and every read while they are
+ * disabled. Callers get the same instances and must not modify them; loaders must return entities no
+ * EntityManager manages any more.
+ */
+@Component
+public class PersonReadCoalescer implements MeterBinder {
+
+    /**
+     * Which query a list read runs, with its normalized filters.
+     */
+    public record ListRead(String query, String firstName, String lastName) {
+    }
+
+    private final boolean enabled;
+    private final SingleFlight<UUID, Optional<Person>> byId;
+    private final SingleFlight<ListRead, List<Person>> lists;
+
+    public PersonReadCoalescer(PeopleApiProperties properties, PersonGeneration generation) {
+        this.enabled = properties.getCache().getSingleFlight().isEnabled();
+        this.byId = new SingleFlight<>("person", generation::current);
+        this.lists = new SingleFlight<>("search", generation::current);
+    }
+
+    public Optional<Person> byId(UUID id, Supplier<Optional<Person>> loader) {
+        return enabled ? byId.execute(id, loader) : loader.get();
+    }
+
+    public List<Person> list(ListRead read, Supplier<List<Person>> loader) {
+        return enabled ? lists.execute(read, loader) : loader.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        byId.bindTo(registry);
+        lists.bindTo(registry);
+    }
+}
@@ -0,0 +1,213 @@
+package be.solxa.peopleapi.cache;
+
+import be.solxa.peopleapi.PeopleApiProperties;
+import be.solxa.peopleapi.model.Person;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Caches search results by their normalized filters, bounded by the estimated heap they take up.
+ * <p>
+ * Each result remembers the {@link PersonGeneration} it was loaded at; a write anywhere makes every cached
+ * result outdated without touching the cache. An outdated result that was loaded less than
+ * {@code people.cache.search.max-stale} ago is still returned while a single background refresh reloads it,
+ * so readers don't pile onto the database under constant writes. Older ones are reloaded before returning,
+ * with concurrent readers of the same filters waiting for that one load.
+ */
+@Slf4j
+@Component
+public class SearchResultCache implements MeterBinder {
+
+    // Rough heap cost of an entry and of each person in it, the names are added per character
+    private static final int ENTRY_OVERHEAD = 96;
+    private static final int PERSON_OVERHEAD = 160;
+
+    private final PersonGeneration generation;
+    private final boolean enabled;
+    private final long maxStaleNanos;
+    private final Ticker ticker;
+    private final ExecutorService refreshExecutor;
+    private final Cache<SearchKey, Entry> cache;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @Autowired
+    public SearchResultCache(PeopleApiProperties properties, PersonGeneration generation) {
+        this(properties, generation, Ticker.systemTicker(),
+                refreshExecutor(properties.getCache().getSearch().getRefreshThreads()));
+    }
+
+    SearchResultCache(PeopleApiProperties properties, PersonGeneration generation, Ticker ticker,
+                      ExecutorService refreshExecutor) {
+        PeopleApiProperties.SearchCache config = properties.getCache().getSearch();
+        this.generation = generation;
+        this.enabled = config.isEnabled();
+        this.maxStaleNanos = config.getMaxStale().toNanos();
+        this.ticker = ticker;
+        this.refreshExecutor = refreshExecutor;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(config.getMaximumWeight().toBytes())
+                .weigher((SearchKey key, Entry entry) -> entry.weight())
+                .ticker(ticker)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * The cached result for the filters, or what the loader returns if there is none usable.
+     * The returned list is shared between callers and can't be modified.
+     */
+    public List<Person> get(SearchKey key, Supplier<List<Person>> loader) {
+        return lookup(key, loader).persons();
+    }
+
+    /**
+     * Like {@link #get}, along with the generation the result was loaded at. An outdated result served while it
+     * is refreshed is older than the current generation, so validators must be derived from this one.
+     */
+    public Result lookup(SearchKey key, Supplier<List<Person>> loader) {
+        if (!enabled) {
+            long loadedGeneration = generation.current();
+            return new Result(loader.get(), loadedGeneration);
+        }
+
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null) {
+            if (entry.generation() == generation.current()) {
+                hits.increment();
+                return entry.result();
+            }
+            if (ticker.read() - entry.loadedAt() <= maxStaleNanos) {
+                staleHits.increment();
+                if (entry.refreshing().compareAndSet(false, true)) {
+                    refresh(key, loader, entry);
+                }
+                return entry.result();
+            }
+        }
+
+        misses.increment();
+        return cache.asMap().compute(key, (k, current) -> isCurrent(current) ? current : load(loader)).result();
+    }
+
+    private void refresh(SearchKey key, Supplier<List<Person>> loader, Entry stale) {
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    cache.asMap().compute(key, (k, current) -> isCurrent(current) ? current : load(loader));
+                } catch (RuntimeException e) {
+                    log.warn("Refreshing cached search {} failed", key, e);
+                } finally {
+                    stale.refreshing().set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Enough refreshes queued, a later reader will try again
+            stale.refreshing().set(false);
+        }
+    }
+
+    private boolean isCurrent(Entry entry) {
+        return entry != null && entry.generation() == generation.current();
+    }
+
+    private Entry load(Supplier<List<Person>> loader) {
+        // Read the generation first: a write committing during the load leaves the entry outdated, never wrong
+        long loadedGeneration = generation.current();
+        Person[] persons = loader.get().toArray(new Person[0]);
+        return new Entry(loadedGeneration, ticker.read(), persons, weigh(persons), new AtomicBoolean());
+    }
+
+    private static int weigh(Person[] persons) {
+        long weight = ENTRY_OVERHEAD + 4L * persons.length;
+        for (Person person : persons) {
+            // Both the display and the normalized search names, two bytes per char at worst
+            weight += PERSON_OVERHEAD + 4L * (length(person.getFirstName()) + length(person.getLastName()));
+        }
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    public Stats stats() {
+        return new Stats(cache.estimatedSize(), cache.policy().eviction().orElseThrow().weightedSize().orElse(0),
+                hits.sum(), staleHits.sum(), misses.sum(), cache.stats().evictionCount());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        // Caffeine counts stale hits as hits, this tells them apart
+        new CaffeineCacheMetrics<>(cache, "search", Tags.empty()).bindTo(registry);
+        FunctionCounter.builder("cache.stale.hits", staleHits, LongAdder::sum)
+                .description("Outdated results served while they were refreshed")
+                .tag("cache", "search")
+                .register(registry);
+    }
+
+    void cleanUp() {
+        cache.cleanUp();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private static ExecutorService refreshExecutor(int threads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(1024), runnable -> {
+                    Thread thread = new Thread(runnable, "search-cache-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Normalized filters of a search; either may be null.
+     */
+    public record SearchKey(String firstName, String lastName) {
+    }
+
+    /**
+     * A search result and the generation it was loaded at.
+     */
+    public record Result(List<Person> persons, long generation) {
+    }
+
+    public record Stats(long size, long weight, long hits, long staleHits, long misses, long evictions) {
+    }
+
+    private record Entry(long generation, long loadedAt, Person[] persons, int weight, AtomicBoolean refreshing) {
+        Result result() {
+            return new Result(Collections.unmodifiableList(Arrays.asList(persons)), generation);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package be.solxa.peopleapi.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent identical calls into one: the first caller for a key runs the loader, callers arriving
+ * while it runs wait for it and get the same result, or the same exception. Nothing is kept once the call
+ * completes; the next caller runs the loader again.
+ * <p>
+ * A caller only joins a call that started at the current {@link PersonGeneration} or later: one that started
+ * before a write committed may read the old rows, so a read that starts after the write runs its own call instead.
+ */
+public class SingleFlight<K, V> {
+
+    private record Flight<V>(long generation, CompletableFuture<V> result) {
+    }
+
+    private final String name;
+    private final LongSupplier generation;
+    private final ConcurrentMap<K, Flight<V>> flights = new ConcurrentHashMap<>();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+
+    public SingleFlight(String name, LongSupplier generation) {
+        this.name = name;
+        this.generation = generation;
+    }
+
+    /**
+     * The loader's result, computed by this call or by an identical one already running. Results are shared
+     * between the callers and must not be modified.
+     */
+    public V execute(K key, Supplier<V> loader) {
+        // Read before the loader runs, so a write committing during the load makes the flight outdated
+        Flight<V> mine = new Flight<>(generation.getAsLong(), new CompletableFuture<>());
+        while (true) {
+            Flight<V> current = flights.putIfAbsent(key, mine);
+            if (current == null) {
+                break;
+            }
+            // One that started at this generation or after is as fresh as this call's own load would be
+            if (current.generation() >= mine.generation()) {
+                collapsed.increment();
+                return await(current.result());
+            }
+            // Started before a write committed, leave it to its callers
+            if (flights.replace(key, current, mine)) {
+                break;
+            }
+        }
+
+        executed.increment();
+        V result;
+        try {
+            result = loader.get();
+        } catch (RuntimeException | Error e) {
+            flights.remove(key, mine);
+            mine.result().completeExceptionally(e);
+            throw e;
+        }
+        // Removed before completing, so no caller can join once the result is out
+        flights.remove(key, mine);
+        mine.result().complete(result);
+        return result;
+    }
+
+    // Joiners see the exception the loader threw, not the future's wrapper
+    private static <V> V await(CompletableFuture<V> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    public long executed() {
+        return executed.sum();
+    }
+
+    public long collapsed() {
+        return collapsed.sum();
+    }
+
+    int inFlight() {
+        return flights.size();
+    }
+
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("people.singleflight.executed", executed, LongAdder::sum)
+                .description("Calls that ran the loader")
+                .tag("flight", name)
+                .register(registry);
+        FunctionCounter.builder("people.singleflight.collapsed", collapsed, LongAdder::sum)
+                .description("Calls that joined an identical call in flight instead of running the loader")
+                .tag("flight", name)
+                .register(registry);
+    }
+}
@@ -0,0 +1,48 @@
+package be.solxa.peopleapi.controller;
+
+import be.solxa.peopleapi.cache.PersonCache;
+import be.solxa.peopleapi.cache.SearchResultCache;
+import be.solxa.peopleapi.dto.CacheStatsDTO;
+import be.solxa.peopleapi.dto.SearchCacheStatsDTO;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/admin/caches")
+@AllArgsConstructor
+public class CacheStatsController {
+
+    private final PersonCache personCache;
+    private final SearchResultCache searchResultCache;
+
+    @GetMapping("/person")
+    @Operation(summary = "Person cache statistics",
+            description = "Size, hit, miss and eviction counts of the cache in front of person lookups by id")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Statistics retrieved successfully")
+    })
+    public ResponseEntity<CacheStatsDTO> personCacheStats() {
+        CacheStats stats = personCache.stats();
+        return ResponseEntity.ok(new CacheStatsDTO(
+                personCache.size(), stats.hitCount(), stats.missCount(), stats.evictionCount(), stats.hitRate()));
+    }
+
+    @GetMapping("/search")
+    @Operation(summary = "Search result cache statistics",
+            description = "Size, estimated weight, hit (fresh and stale), miss and eviction counts of the search result cache")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Statistics retrieved successfully")
+    })
+    public ResponseEntity<SearchCacheStatsDTO> searchCacheStats() {
+        SearchResultCache.Stats stats = searchResultCache.stats();
+        return ResponseEntity.ok(new SearchCacheStatsDTO(
+                stats.size(), stats.weight(), stats.hits(), stats.staleHits(), stats.misses(), stats.evictions()));
+    }
+}
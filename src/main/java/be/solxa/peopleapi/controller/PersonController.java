@@ -1,23 +1,48 @@
 package be.solxa.peopleapi.controller;
 
+import be.solxa.peopleapi.dto.NameCountDTO;
+import be.solxa.peopleapi.dto.PersonBatchResultDTO;
+import be.solxa.peopleapi.dto.PersonCountDTO;
+import be.solxa.peopleapi.dto.PersonCursor;
 import be.solxa.peopleapi.dto.PersonDTO;
+import be.solxa.peopleapi.dto.PersonField;
+import be.solxa.peopleapi.dto.PersonPageDTO;
+import be.solxa.peopleapi.mapper.PersonArray;
+import be.solxa.peopleapi.mapper.PersonJsonWriter;
 import be.solxa.peopleapi.mapper.PersonMapper;
 import be.solxa.peopleapi.model.Person;
+import be.solxa.peopleapi.service.PersonBatchResult;
 import be.solxa.peopleapi.service.PersonService;
+import be.solxa.peopleapi.service.SearchMode;
+import be.solxa.peopleapi.service.VersionedPersons;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -26,75 +51,348 @@ import java.util.stream.Collectors;
 @AllArgsConstructor
 public class PersonController {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BATCH_SIZE = 10_000;
+    private static final int MAX_SUGGESTIONS = 100;
+    private static final int MAX_FACETS = 1000;
+
     private final PersonService personService;
     private final PersonMapper personMapper;
+    private final PersonJsonWriter personJsonWriter;
+    private final ContentNegotiationManager contentNegotiationManager;
 
     @GetMapping
     @Operation(summary = "Get all persons with optional filtering",
-            description = "Retrieve a list of persons with optional filtering by first or last name (case insensitive, partial match)")
+            description = "Retrieve a list of persons with optional filtering by first or last name (case and accent insensitive, " +
+                    "partial, prefix or phonetic match)")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Persons retrieved successfully")
+            @ApiResponse(responseCode = "200", description = "Persons retrieved successfully", content = {
+                    @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            array = @ArraySchema(schema = @Schema(implementation = PersonDTO.class))),
+                    @Content(mediaType = MediaType.APPLICATION_CBOR_VALUE,
+                            array = @ArraySchema(schema = @Schema(implementation = PersonDTO.class))),
+                    @Content(mediaType = "application/x-jackson-smile",
+                            array = @ArraySchema(schema = @Schema(implementation = PersonDTO.class)))}),
+            @ApiResponse(responseCode = "304", description = "No person changed since the ETag in If-None-Match"),
+            @ApiResponse(responseCode = "400", description = "Unknown match mode or field"),
+            @ApiResponse(responseCode = "406", description = "None of the accepted media types is supported")
     })
-    public ResponseEntity<List<PersonDTO>> search(
+    public ResponseEntity<PersonArray> search(
+            @Parameter(description = "Filter by first name (case and accent insensitive, partial match)")
+            @RequestParam(required = false) String firstName,
+            @Parameter(description = "Filter by last name (case and accent insensitive, partial match)")
+            @RequestParam(required = false) String lastName,
+            @Parameter(description = "How filters match names: 'contains' (default), 'prefix', which is served by the " +
+                    "name indexes, or 'phonetic', which finds names that sound alike (e.g. Smith and Schmidt)")
+            @RequestParam(defaultValue = "contains") String match,
+            @Parameter(description = "Comma separated fields to return, e.g. 'id,lastName'. Only those columns are " +
+                    "read and written; omit for full persons")
+            @RequestParam(required = false) String fields,
+            NativeWebRequest request) throws HttpMediaTypeNotAcceptableException {
+
+        SearchMode mode = SearchMode.fromParameter(match);
+        Set<PersonField> projection = fields == null ? null : PersonField.fromParameter(fields);
+        MediaType mediaType = negotiate(request);
+
+        // A cached search can be served while it is refreshed, older than the current list version, so its ETag
+        // is only known once read. Reading it again to revalidate is cheap.
+        if (projection == null && mode == SearchMode.CONTAINS && personService.isCachedSearch(firstName, lastName)) {
+            VersionedPersons result = personService.searchVersioned(firstName, lastName);
+            if (request.checkNotModified(PersonETags.weak(result.version(), mediaType))) {
+                return notModified();
+            }
+            return ok(mediaType).body(PersonArray.of(result.persons()));
+        }
+
+        // Taken before reading, so a write committing meanwhile makes the ETag outdated rather than wrong
+        if (request.checkNotModified(PersonETags.weak(personService.listVersion(), mediaType))) {
+            return notModified();
+        }
+
+        // Written straight from the entities or projections by PersonArrayHttpMessageConverter, no DTO per person
+        PersonArray body;
+        if (projection != null) {
+            body = PersonArray.projected(personService.searchProjected(firstName, lastName, mode, projection));
+        } else {
+            body = PersonArray.of(switch (mode) {
+                case CONTAINS -> personService.search(firstName, lastName);
+                case PREFIX -> personService.searchByPrefix(firstName, lastName);
+                case PHONETIC -> personService.searchPhonetic(firstName, lastName);
+            });
+        }
+
+        return ok(mediaType).body(body);
+    }
+
+    @GetMapping(params = "limit")
+    @Operation(summary = "Get a page of persons with optional filtering",
+            description = "Retrieve persons ordered by last name, first name and id, one page at a time. " +
+                    "Pass the returned 'next' cursor to fetch the following page.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Page retrieved successfully"),
+            @ApiResponse(responseCode = "304", description = "No person changed since the ETag in If-None-Match"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or limit")
+    })
+    public ResponseEntity<PersonPageDTO> searchPage(
             @Parameter(description = "Filter by first name (case insensitive, partial match)")
             @RequestParam(required = false) String firstName,
             @Parameter(description = "Filter by last name (case insensitive, partial match)")
-            @RequestParam(required = false) String lastName) {
+            @RequestParam(required = false) String lastName,
+            @Parameter(description = "Cursor returned by the previous page")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Maximum number of persons in the page", required = true)
+            @RequestParam @Min(1) @Max(MAX_PAGE_SIZE) int limit,
+            NativeWebRequest request) throws HttpMediaTypeNotAcceptableException {
 
-        List<Person> persons = personService.search(firstName, lastName);
-        List<PersonDTO> personDTOs = persons.stream()
+        MediaType mediaType = negotiate(request);
+        if (request.checkNotModified(PersonETags.weak(personService.listVersion(), mediaType))) {
+            return notModified();
+        }
+
+        PersonCursor after = cursor == null ? null : PersonCursor.decode(cursor);
+        Slice<Person> page = personService.searchPage(firstName, lastName, after, limit);
+        List<PersonDTO> personDTOs = page.getContent().stream()
                 .map(personMapper::toDTO)
                 .collect(Collectors.toList());
+        String next = page.hasNext() ? PersonCursor.after(page.getContent().getLast()).encode() : null;
+
+        return ok(mediaType).body(new PersonPageDTO(personDTOs, next));
+    }
+
+    @GetMapping("/count")
+    @Operation(summary = "Count persons with optional filtering",
+            description = "Number of persons the list endpoint would return for the same filters, counted without loading them")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Count retrieved successfully"),
+            @ApiResponse(responseCode = "304", description = "No person changed since the ETag in If-None-Match")
+    })
+    public ResponseEntity<PersonCountDTO> count(
+            @Parameter(description = "Filter by first name (case and accent insensitive, partial match)")
+            @RequestParam(required = false) String firstName,
+            @Parameter(description = "Filter by last name (case and accent insensitive, partial match)")
+            @RequestParam(required = false) String lastName,
+            NativeWebRequest request) throws HttpMediaTypeNotAcceptableException {
+
+        MediaType mediaType = negotiate(request);
+        if (request.checkNotModified(PersonETags.weak(personService.listVersion(), mediaType))) {
+            return notModified();
+        }
+
+        return ok(mediaType).body(new PersonCountDTO(personService.count(firstName, lastName)));
+    }
+
+    @GetMapping("/facets")
+    @Operation(summary = "Most common names with optional filtering",
+            description = "The most common first or last names among the persons matching the filters, " +
+                    "with how many persons carry each, grouped without loading the persons")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Facets retrieved successfully"),
+            @ApiResponse(responseCode = "304", description = "No person changed since the ETag in If-None-Match"),
+            @ApiResponse(responseCode = "400", description = "Unknown field or invalid top")
+    })
+    public ResponseEntity<List<NameCountDTO>> facets(
+            @Parameter(description = "Name field to group by: 'firstName' or 'lastName' (default)")
+            @RequestParam(defaultValue = "lastName") String field,
+            @Parameter(description = "Number of most common names to return")
+            @RequestParam(defaultValue = "10") @Min(1) @Max(MAX_FACETS) int top,
+            @Parameter(description = "Filter by first name (case and accent insensitive, partial match)")
+            @RequestParam(required = false) String firstName,
+            @Parameter(description = "Filter by last name (case and accent insensitive, partial match)")
+            @RequestParam(required = false) String lastName,
+            NativeWebRequest request) throws HttpMediaTypeNotAcceptableException {
+
+        PersonField groupBy = PersonField.nameFromParameter(field);
+        MediaType mediaType = negotiate(request);
+        if (request.checkNotModified(PersonETags.weak(personService.listVersion(), mediaType))) {
+            return notModified();
+        }
+
+        List<NameCountDTO> facets = personService.facets(groupBy, firstName, lastName, top).stream()
+                .map(facet -> new NameCountDTO(facet.name(), facet.count()))
+                .collect(Collectors.toList());
 
-        return ResponseEntity.ok(personDTOs);
+        return ok(mediaType).body(facets);
+    }
+
+    @GetMapping("/suggest")
+    @Operation(summary = "Suggest names",
+            description = "Most common first or last names starting with the prefix (case and accent insensitive), " +
+                    "with how many persons carry each, for autocompletion")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Suggestions retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Unknown field or invalid limit")
+    })
+    public ResponseEntity<List<NameCountDTO>> suggest(
+            @Parameter(description = "Start of the name typed so far")
+            @RequestParam(defaultValue = "") String prefix,
+            @Parameter(description = "Name field to complete: 'firstName' or 'lastName' (default)")
+            @RequestParam(defaultValue = "lastName") String field,
+            @Parameter(description = "Maximum number of suggestions")
+            @RequestParam(defaultValue = "10") @Min(1) @Max(MAX_SUGGESTIONS) int limit,
+            NativeWebRequest request) throws HttpMediaTypeNotAcceptableException {
+
+        MediaType mediaType = negotiate(request);
+        List<NameCountDTO> suggestions = personService.suggest(PersonField.nameFromParameter(field), prefix, limit)
+                .stream()
+                .map(suggestion -> new NameCountDTO(suggestion.name(), suggestion.count()))
+                .collect(Collectors.toList());
+
+        return ok(mediaType).body(suggestions);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Export all persons",
+            description = "Stream every person as newline-delimited JSON, one object per line")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Export streamed successfully")
+    })
+    public ResponseEntity<StreamingResponseBody> exportPersons() {
+        StreamingResponseBody body = out -> personJsonWriter.writeLines(personService::exportPersons, out);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
     @GetMapping("/{id}")
-    @Operation(summary = "Get a person by ID", description = "Retrieve a specific person by their UUID")
+    @Operation(summary = "Get a person by ID",
+            description = "Retrieve a specific person by their UUID. The response carries the person's version as ETag.")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Person found",
-                    content = @Content(schema = @Schema(implementation = PersonDTO.class))),
-            @ApiResponse(responseCode = "404", description = "Person not found")
+            @ApiResponse(responseCode = "200", description = "Person found", content = {
+                    @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = PersonDTO.class)),
+                    @Content(mediaType = MediaType.APPLICATION_CBOR_VALUE, schema = @Schema(implementation = PersonDTO.class)),
+                    @Content(mediaType = "application/x-jackson-smile", schema = @Schema(implementation = PersonDTO.class))}),
+            @ApiResponse(responseCode = "304", description = "Person unchanged since the ETag in If-None-Match"),
+            @ApiResponse(responseCode = "404", description = "Person not found"),
+            @ApiResponse(responseCode = "406", description = "None of the accepted media types is supported")
     })
     public ResponseEntity<PersonDTO> getPersonById(
             @Parameter(description = "Person UUID", required = true)
-            @PathVariable UUID id) {
-        return personService.getPersonById(id)
-                .map(personMapper::toDTO)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+            @PathVariable UUID id,
+            NativeWebRequest request) throws HttpMediaTypeNotAcceptableException {
+        MediaType mediaType = negotiate(request);
+        Optional<Person> person = personService.getPersonById(id);
+        if (person.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        // Sets the ETag header, and answers 304 without mapping or serializing when the client has this version
+        String etag = PersonETags.strong(person.get().getVersion(), mediaType);
+        if (etag != null && request.checkNotModified(etag)) {
+            return notModified();
+        }
+        return ok(mediaType).body(personMapper.toDTO(person.get()));
     }
 
     @PostMapping
-    @Operation(summary = "Create a new person", description = "Create a new person with the provided details")
+    @Operation(summary = "Create a new person",
+            description = "Create a new person with the provided details. With write-behind enabled the person is " +
+                    "queued and inserted shortly after; it can be read by id right away.")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "201", description = "Person created successfully"),
-            @ApiResponse(responseCode = "400", description = "Invalid input data")
+            @ApiResponse(responseCode = "201", description = "Person created successfully", content = {
+                    @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = PersonDTO.class)),
+                    @Content(mediaType = MediaType.APPLICATION_CBOR_VALUE, schema = @Schema(implementation = PersonDTO.class)),
+                    @Content(mediaType = "application/x-jackson-smile", schema = @Schema(implementation = PersonDTO.class))}),
+            @ApiResponse(responseCode = "202", description = "Person accepted for writing (write-behind mode)", content = {
+                    @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = PersonDTO.class)),
+                    @Content(mediaType = MediaType.APPLICATION_CBOR_VALUE, schema = @Schema(implementation = PersonDTO.class)),
+                    @Content(mediaType = "application/x-jackson-smile", schema = @Schema(implementation = PersonDTO.class))}),
+            @ApiResponse(responseCode = "400", description = "Invalid input data"),
+            @ApiResponse(responseCode = "406", description = "None of the accepted media types is supported"),
+            @ApiResponse(responseCode = "503", description = "Write queue is full, retry later")
     })
     public ResponseEntity<PersonDTO> createPerson(
             @Parameter(description = "Person details", required = true)
-            @Valid @RequestBody PersonDTO personDTO) {
+            @Valid @RequestBody PersonDTO personDTO,
+            NativeWebRequest request) throws HttpMediaTypeNotAcceptableException {
+        // Before writing, so a client that can't read the answer doesn't create the person anyway
+        MediaType mediaType = negotiate(request);
         Person person = personMapper.toEntity(personDTO);
+        if (personService.isWriteBehindEnabled()) {
+            Person accepted = personService.acceptPerson(person);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/persons/" + accepted.getId()))
+                    .contentType(mediaType)
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .body(personMapper.toDTO(accepted));
+        }
+
         Person createdPerson = personService.createPerson(person);
-        return ResponseEntity.status(HttpStatus.CREATED).body(personMapper.toDTO(createdPerson));
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .contentType(mediaType)
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(personMapper.toDTO(createdPerson));
+    }
+
+    @PostMapping("/batch")
+    @Operation(summary = "Create persons in bulk",
+            description = "Create many persons in one request. Every item is validated first; valid items are " +
+                    "inserted and invalid ones are reported, each result carrying the index of its input item.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "All persons created successfully"),
+            @ApiResponse(responseCode = "207", description = "Some persons were rejected, see per-item results"),
+            @ApiResponse(responseCode = "400", description = "No person could be created")
+    })
+    public ResponseEntity<List<PersonBatchResultDTO>> createPersons(
+            @Parameter(description = "Persons to create", required = true)
+            @RequestBody @Size(max = MAX_BATCH_SIZE) List<PersonDTO> personDTOs,
+            NativeWebRequest request) throws HttpMediaTypeNotAcceptableException {
+        MediaType mediaType = negotiate(request);
+        List<Person> persons = personDTOs.stream()
+                .map(personMapper::toEntity)
+                .collect(Collectors.toList());
+        List<PersonBatchResult> results = personService.createPersons(persons);
+
+        long created = results.stream().filter(PersonBatchResult::isCreated).count();
+        HttpStatus status = created == results.size() ? HttpStatus.CREATED
+                : created == 0 ? HttpStatus.BAD_REQUEST
+                : HttpStatus.MULTI_STATUS;
+        List<PersonBatchResultDTO> body = results.stream()
+                .map(result -> result.isCreated()
+                        ? new PersonBatchResultDTO(result.getIndex(), "CREATED", personMapper.toDTO(result.getPerson()), null)
+                        : new PersonBatchResultDTO(result.getIndex(), "REJECTED", null, result.getError()))
+                .collect(Collectors.toList());
+
+        return ResponseEntity.status(status)
+                .contentType(mediaType)
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(body);
     }
 
     @PutMapping("/{id}")
-    @Operation(summary = "Update a person", description = "Update an existing person with the provided details")
+    @Operation(summary = "Update a person",
+            description = "Update an existing person with the provided details. With If-Match, the update only " +
+                    "applies if the person is still at that ETag, and the response carries the new ETag.")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Person updated successfully"),
+            @ApiResponse(responseCode = "200", description = "Person updated successfully", content = {
+                    @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = PersonDTO.class)),
+                    @Content(mediaType = MediaType.APPLICATION_CBOR_VALUE, schema = @Schema(implementation = PersonDTO.class)),
+                    @Content(mediaType = "application/x-jackson-smile", schema = @Schema(implementation = PersonDTO.class))}),
             @ApiResponse(responseCode = "404", description = "Person not found"),
-            @ApiResponse(responseCode = "400", description = "Invalid input data")
+            @ApiResponse(responseCode = "400", description = "Invalid input data"),
+            @ApiResponse(responseCode = "406", description = "None of the accepted media types is supported"),
+            @ApiResponse(responseCode = "409", description = "Person accepted but not written yet, retry shortly"),
+            @ApiResponse(responseCode = "412", description = "Person changed since the ETag in If-Match")
     })
     public ResponseEntity<PersonDTO> updatePerson(
             @Parameter(description = "Person UUID", required = true)
             @PathVariable UUID id,
+            @Parameter(description = "ETag of the person the update is based on")
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @Parameter(description = "Updated person details", required = true)
-            @Valid @RequestBody PersonDTO personDTO) {
+            @Valid @RequestBody PersonDTO personDTO,
+            NativeWebRequest request) throws HttpMediaTypeNotAcceptableException {
+        MediaType mediaType = negotiate(request);
         Person personDetails = personMapper.toEntity(personDTO);
-        return personService.updatePerson(id, personDetails)
-                .map(personMapper::toDTO)
-                .map(ResponseEntity::ok)
+        Long expectedVersion = PersonETags.parseIfMatch(ifMatch);
+        Optional<Person> updated = expectedVersion == null
+                ? personService.updatePerson(id, personDetails)
+                : personService.updatePerson(id, personDetails, expectedVersion);
+
+        return updated
+                .map(person -> ok(mediaType)
+                        .eTag(PersonETags.strong(person.getVersion(), mediaType))
+                        .body(personMapper.toDTO(person)))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -102,7 +400,8 @@ public class PersonController {
     @Operation(summary = "Delete a person", description = "Delete a person by their UUID")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "204", description = "Person deleted successfully"),
-            @ApiResponse(responseCode = "404", description = "Person not found")
+            @ApiResponse(responseCode = "404", description = "Person not found"),
+            @ApiResponse(responseCode = "409", description = "Person accepted but not written yet, retry shortly")
     })
     public ResponseEntity<Void> deletePerson(
             @Parameter(description = "Person UUID", required = true)
@@ -115,4 +414,27 @@ public class PersonController {
             return ResponseEntity.notFound().build();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * The format to answer in, from the Accept header. Negotiated up front rather than by the message converters
+     * so ETags can name the format; every person endpoint but the export answers in JSON, CBOR or Smile.
+     */
+    private MediaType negotiate(NativeWebRequest request) throws HttpMediaTypeNotAcceptableException {
+        return personJsonWriter.negotiate(contentNegotiationManager.resolveMediaTypes(request))
+                .orElseThrow(() -> new HttpMediaTypeNotAcceptableException(personJsonWriter.getSupportedMediaTypes()));
+    }
+
+    // Shared caches keep a copy per format, the ETags alone don't stop them from serving one for another
+    private static ResponseEntity.BodyBuilder ok(MediaType mediaType) {
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .varyBy(HttpHeaders.ACCEPT);
+    }
+
+    // checkNotModified already set the status and ETag; this adds the Vary header to the 304
+    private static <T> ResponseEntity<T> notModified() {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .varyBy(HttpHeaders.ACCEPT)
+                .build();
+    }
+}
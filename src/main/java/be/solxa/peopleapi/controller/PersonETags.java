@@ -0,0 +1,57 @@
+package be.solxa.peopleapi.controller;
+
+import be.solxa.peopleapi.exception.PersonVersionConflictException;
+import be.solxa.peopleapi.mapper.PersonJsonWriter;
+import org.springframework.http.MediaType;
+
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * ETags of person resources: a strong one per person from its version column, and a weak one for lists
+ * from the table wide change counter. JSON, CBOR and Smile bodies of the same data differ byte for byte,
+ * so the binary formats get their own suffix and a copy in one format is never revalidated as another.
+ */
+final class PersonETags {
+
+    private static final Map<MediaType, String> FORMAT_SUFFIXES = Map.of(
+            MediaType.APPLICATION_CBOR, "-cbor",
+            PersonJsonWriter.APPLICATION_SMILE, "-smile");
+    private static final Pattern STRONG = Pattern.compile("\"(\\d+)(?:-cbor|-smile)?\"");
+
+    private PersonETags() {
+    }
+
+    static String strong(Long version, MediaType mediaType) {
+        return version == null ? null : "\"" + version + suffix(mediaType) + "\"";
+    }
+
+    static String weak(String token, MediaType mediaType) {
+        return "W/\"" + token + suffix(mediaType) + "\"";
+    }
+
+    private static String suffix(MediaType mediaType) {
+        return FORMAT_SUFFIXES.getOrDefault(mediaType, "");
+    }
+
+    /**
+     * The version an If-Match header asks for, or null when the update is unconditional (no header or "*").
+     * The strong ETag of any format names the version; anything else can never match.
+     */
+    static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.strip().equals("*")) {
+            return null;
+        }
+
+        Matcher etag = STRONG.matcher(ifMatch.strip());
+        if (etag.matches()) {
+            try {
+                return Long.parseLong(etag.group(1));
+            } catch (NumberFormatException e) {
+                // Falls through to the conflict below
+            }
+        }
+        throw new PersonVersionConflictException("If-Match " + ifMatch + " does not match the current person");
+    }
+}
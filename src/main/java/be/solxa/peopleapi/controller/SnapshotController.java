@@ -0,0 +1,32 @@
+package be.solxa.peopleapi.controller;
+
+import be.solxa.peopleapi.dto.SnapshotResultDTO;
+import be.solxa.peopleapi.snapshot.PersonSnapshotService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/admin/snapshot")
+@AllArgsConstructor
+public class SnapshotController {
+
+    private final PersonSnapshotService snapshotService;
+
+    @PostMapping
+    @Operation(summary = "Write a person snapshot",
+            description = "Writes every person to the binary snapshot file configured by people.snapshot.path, " +
+                    "which people.snapshot.restore-on-startup loads into an empty database at boot")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Snapshot written successfully")
+    })
+    public ResponseEntity<SnapshotResultDTO> writeSnapshot() {
+        PersonSnapshotService.Result result = snapshotService.write();
+        return ResponseEntity.ok(new SnapshotResultDTO(result.persons(), result.bytes(), result.millis()));
+    }
+}
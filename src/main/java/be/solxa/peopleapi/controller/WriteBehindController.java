@@ -0,0 +1,72 @@
+package be.solxa.peopleapi.controller;
+
+import be.solxa.peopleapi.dto.DeadLetterDTO;
+import be.solxa.peopleapi.dto.DeadLetterRetryDTO;
+import be.solxa.peopleapi.service.PersonWriteBehind;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/admin/write-behind/dead-letters")
+@AllArgsConstructor
+public class WriteBehindController {
+
+    private final PersonWriteBehind writeBehind;
+
+    @GetMapping
+    @Operation(summary = "List dead letters",
+            description = "Persons accepted with 202 whose insert failed, oldest first, with the reason. They are " +
+                    "only kept in memory and are lost on restart")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Dead letters retrieved successfully")
+    })
+    public ResponseEntity<List<DeadLetterDTO>> deadLetters() {
+        List<DeadLetterDTO> deadLetters = writeBehind.deadLetters().stream()
+                .map(deadLetter -> new DeadLetterDTO(deadLetter.person().getId(), deadLetter.person().getFirstName(),
+                        deadLetter.person().getLastName(), deadLetter.error()))
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(deadLetters);
+    }
+
+    @PostMapping("/retry")
+    @Operation(summary = "Retry dead letters",
+            description = "Tries to write every dead letter again; the ones that still fail are kept")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Dead letters retried")
+    })
+    public ResponseEntity<DeadLetterRetryDTO> retryDeadLetters() {
+        PersonWriteBehind.RetryResult result = writeBehind.retryDeadLetters();
+        return ResponseEntity.ok(new DeadLetterRetryDTO(result.written(), result.failed()));
+    }
+
+    @DeleteMapping("/{id}")
+    @Operation(summary = "Discard a dead letter",
+            description = "Forgets the dead letter of a person, once it was recovered some other way")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Dead letter discarded"),
+            @ApiResponse(responseCode = "404", description = "No dead letter for this person")
+    })
+    public ResponseEntity<Void> discardDeadLetter(
+            @Parameter(description = "Person UUID", required = true)
+            @PathVariable UUID id) {
+        if (writeBehind.discardDeadLetter(id)) {
+            return ResponseEntity.noContent().build();
+        } else {
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
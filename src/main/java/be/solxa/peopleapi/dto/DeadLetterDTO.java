@@ -0,0 +1,17 @@
+package be.solxa.peopleapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeadLetterDTO {
+    private UUID id;
+    private String firstName;
+    private String lastName;
+    private String error;
+}
@@ -0,0 +1,13 @@
+package be.solxa.peopleapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeadLetterRetryDTO {
+    private int written;
+    private int failed;
+}
@@ -0,0 +1,15 @@
+package be.solxa.peopleapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NameCountDTO {
+    private String name;
+
+    // Number of persons with this name
+    private long count;
+}
@@ -0,0 +1,20 @@
+package be.solxa.peopleapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PersonBatchResultDTO {
+    // Position of the item in the submitted array
+    private int index;
+
+    // CREATED or REJECTED
+    private String status;
+
+    private PersonDTO person;
+
+    private String error;
+}
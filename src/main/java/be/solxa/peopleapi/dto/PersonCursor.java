@@ -0,0 +1,56 @@
+package be.solxa.peopleapi.dto;
+
+import be.solxa.peopleapi.exception.InvalidCursorException;
+import be.solxa.peopleapi.model.Person;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position in the (lastName, firstName, id) ordering of persons, exchanged with clients as an opaque token.
+ */
+@Getter
+@AllArgsConstructor
+public class PersonCursor {
+    private final String lastName;
+    private final String firstName;
+    private final UUID id;
+
+    public static PersonCursor after(Person person) {
+        return new PersonCursor(person.getLastName(), person.getFirstName(), person.getId());
+    }
+
+    public String encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(lastName);
+            out.writeUTF(firstName);
+            out.writeLong(id.getMostSignificantBits());
+            out.writeLong(id.getLeastSignificantBits());
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to encode cursor", e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    public static PersonCursor decode(String token) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+            String lastName = in.readUTF();
+            String firstName = in.readUTF();
+            UUID id = new UUID(in.readLong(), in.readLong());
+            if (in.available() > 0) {
+                throw new InvalidCursorException("Malformed cursor");
+            }
+            return new PersonCursor(lastName, firstName, id);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new InvalidCursorException("Malformed cursor");
+        }
+    }
+}
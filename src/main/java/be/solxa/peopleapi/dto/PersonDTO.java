@@ -1,5 +1,6 @@
 package be.solxa.peopleapi.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.validation.constraints.NotBlank;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -10,6 +11,8 @@ import java.util.UUID;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+// Fields left out of a projection (see PersonField) are null and not written
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class PersonDTO {
     private UUID id;
 
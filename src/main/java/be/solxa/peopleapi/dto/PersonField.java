@@ -0,0 +1,63 @@
+package be.solxa.peopleapi.dto;
+
+import be.solxa.peopleapi.exception.InvalidFieldsException;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * PersonDTO fields a client can ask for, named after the Person attributes they are read from.
+ */
+public enum PersonField {
+    ID("id"),
+    FIRST_NAME("firstName"),
+    LAST_NAME("lastName");
+
+    private final String attribute;
+
+    PersonField(String attribute) {
+        this.attribute = attribute;
+    }
+
+    public String getAttribute() {
+        return attribute;
+    }
+
+    /**
+     * Parses a comma separated list of field names such as {@code id,lastName}.
+     */
+    public static Set<PersonField> fromParameter(String value) {
+        Set<PersonField> fields = EnumSet.noneOf(PersonField.class);
+        for (String name : value.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            fields.add(fromAttribute(trimmed));
+        }
+        if (fields.isEmpty()) {
+            throw new InvalidFieldsException("No fields requested");
+        }
+        return fields;
+    }
+
+    /**
+     * Parses the name of one of the name fields, the only ones that can be suggested.
+     */
+    public static PersonField nameFromParameter(String value) {
+        PersonField field = fromAttribute(value.trim());
+        if (field == ID) {
+            throw new InvalidFieldsException("Not a name field: " + value);
+        }
+        return field;
+    }
+
+    private static PersonField fromAttribute(String name) {
+        for (PersonField field : values()) {
+            if (field.attribute.equals(name)) {
+                return field;
+            }
+        }
+        throw new InvalidFieldsException("Unknown field: " + name);
+    }
+}
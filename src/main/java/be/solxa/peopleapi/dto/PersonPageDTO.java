@@ -0,0 +1,17 @@
+package be.solxa.peopleapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PersonPageDTO {
+    private List<PersonDTO> items;
+
+    // Cursor to pass back to fetch the following page, null on the last page
+    private String next;
+}
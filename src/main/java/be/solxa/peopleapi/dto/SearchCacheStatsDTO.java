@@ -0,0 +1,17 @@
+package be.solxa.peopleapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchCacheStatsDTO {
+    private long size;
+    private long weightBytes;
+    private long hits;
+    private long staleHits;
+    private long misses;
+    private long evictions;
+}
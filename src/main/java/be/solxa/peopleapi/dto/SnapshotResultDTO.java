@@ -0,0 +1,14 @@
+package be.solxa.peopleapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SnapshotResultDTO {
+    private long persons;
+    private long bytes;
+    private long millis;
+}
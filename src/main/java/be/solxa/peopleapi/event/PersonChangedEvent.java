@@ -0,0 +1,47 @@
+package be.solxa.peopleapi.event;
+
+import be.solxa.peopleapi.model.Person;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * Published by PersonService for every person written, so in-memory structures derived from the table
+ * can follow along. Listeners use {@code @TransactionalEventListener} to only see committed changes.
+ */
+@Getter
+@AllArgsConstructor
+public class PersonChangedEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private final Type type;
+    private final UUID id;
+
+    // Current names of the person, null for DELETED
+    private final String firstName;
+    private final String lastName;
+
+    // Row version the write committed, null for DELETED or when unknown. After-commit listeners of concurrent
+    // writes can run out of commit order; this tells which change is the latest.
+    private final Long version;
+
+    public static PersonChangedEvent created(Person person) {
+        return new PersonChangedEvent(Type.CREATED, person.getId(), person.getFirstName(), person.getLastName(),
+                person.getVersion());
+    }
+
+    public static PersonChangedEvent updated(Person person) {
+        return new PersonChangedEvent(Type.UPDATED, person.getId(), person.getFirstName(), person.getLastName(),
+                person.getVersion());
+    }
+
+    public static PersonChangedEvent deleted(UUID id) {
+        return new PersonChangedEvent(Type.DELETED, id, null, null, null);
+    }
+}
@@ -0,0 +1,11 @@
+package be.solxa.peopleapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidSearchModeException extends RuntimeException {
+    public InvalidSearchModeException(String message) {
+        super(message);
+    }
+}
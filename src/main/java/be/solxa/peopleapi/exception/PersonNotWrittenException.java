@@ -0,0 +1,11 @@
+package be.solxa.peopleapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class PersonNotWrittenException extends RuntimeException {
+    public PersonNotWrittenException(String message) {
+        super(message);
+    }
+}
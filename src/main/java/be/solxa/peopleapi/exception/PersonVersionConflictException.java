@@ -0,0 +1,11 @@
+package be.solxa.peopleapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+public class PersonVersionConflictException extends RuntimeException {
+    public PersonVersionConflictException(String message) {
+        super(message);
+    }
+}
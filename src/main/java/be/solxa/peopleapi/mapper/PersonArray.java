@@ -0,0 +1,40 @@
+package be.solxa.peopleapi.mapper;
+
+import be.solxa.peopleapi.dto.PersonDTO;
+import be.solxa.peopleapi.model.Person;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * A list of persons returned as a response body, written by {@link PersonArrayHttpMessageConverter} with the
+ * {@link PersonJsonWriter}: either the persons themselves or projections of them.
+ */
+public final class PersonArray {
+
+    private final List<Person> persons;
+    private final List<PersonDTO> projections;
+
+    private PersonArray(List<Person> persons, List<PersonDTO> projections) {
+        this.persons = persons;
+        this.projections = projections;
+    }
+
+    public static PersonArray of(List<Person> persons) {
+        return new PersonArray(persons, null);
+    }
+
+    public static PersonArray projected(List<PersonDTO> projections) {
+        return new PersonArray(null, projections);
+    }
+
+    void writeTo(PersonJsonWriter writer, MediaType mediaType, OutputStream out) throws IOException {
+        if (persons != null) {
+            writer.writeArray(mediaType, persons, out);
+        } else {
+            writer.writeDTOArray(mediaType, projections, out);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package be.solxa.peopleapi.mapper;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes {@link PersonArray} bodies in JSON, CBOR or Smile with the {@link PersonJsonWriter}, on the request
+ * thread. A streaming body would hand every list response to the async executor instead, where a few
+ * threads would serialize the lists of all requests and each response would pay for an extra dispatch.
+ */
+@Component
+public class PersonArrayHttpMessageConverter extends AbstractHttpMessageConverter<PersonArray> {
+
+    private final PersonJsonWriter personJsonWriter;
+
+    public PersonArrayHttpMessageConverter(PersonJsonWriter personJsonWriter) {
+        super(personJsonWriter.getSupportedMediaTypes().toArray(MediaType[]::new));
+        this.personJsonWriter = personJsonWriter;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return PersonArray.class == clazz;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected PersonArray readInternal(Class<? extends PersonArray> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Person arrays are only written", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(PersonArray persons, HttpOutputMessage outputMessage) throws IOException {
+        // The content type may carry parameters, the writer knows the plain types
+        MediaType contentType = outputMessage.getHeaders().getContentType();
+        MediaType mediaType = personJsonWriter.negotiate(contentType == null ? List.of() : List.of(contentType))
+                .orElse(MediaType.APPLICATION_JSON);
+        persons.writeTo(personJsonWriter, mediaType, outputMessage.getBody());
+    }
+}
@@ -0,0 +1,201 @@
+package be.solxa.peopleapi.mapper;
+
+import be.solxa.peopleapi.dto.PersonDTO;
+import be.solxa.peopleapi.model.Person;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Writes persons as JSON straight from the entities, in the same shape as {@link PersonDTO}, with a
+ * {@link JsonGenerator} instead of data binding: no DTO per person and no reflection over its properties.
+ * Field names are pre-encoded and ids are formatted into a reused buffer, so a person costs no allocation
+ * beyond what the generator itself buffers. Null fields are left out, like PersonDTO does.
+ * <p>
+ * Arrays can also be written as CBOR or Smile, the binary formats the message converters offer next to JSON
+ * (see WebConfig); ids are then 16 byte binaries, as Jackson writes UUIDs to formats with native binary.
+ */
+@Component
+public class PersonJsonWriter {
+
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString FIRST_NAME = new SerializedString("firstName");
+    private static final SerializedString LAST_NAME = new SerializedString("lastName");
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int UUID_LENGTH = 36;
+    private static final int UUID_BYTES = 16;
+
+    public static final MediaType APPLICATION_SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    // In order of preference when the client accepts several
+    private final Map<MediaType, JsonFactory> factories = new LinkedHashMap<>();
+
+    public PersonJsonWriter(ObjectMapper objectMapper) {
+        factories.put(MediaType.APPLICATION_JSON, objectMapper.getFactory());
+        factories.put(MediaType.APPLICATION_CBOR, new CBORFactory());
+        factories.put(APPLICATION_SMILE, new SmileFactory());
+    }
+
+    public List<MediaType> getSupportedMediaTypes() {
+        return List.copyOf(factories.keySet());
+    }
+
+    /**
+     * The first supported media type that one of the accepted ones (most preferred first) allows, empty when
+     * none does.
+     */
+    public Optional<MediaType> negotiate(List<MediaType> accepted) {
+        for (MediaType acceptable : accepted) {
+            for (MediaType supported : factories.keySet()) {
+                if (acceptable.isCompatibleWith(supported)) {
+                    return Optional.of(supported);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Writes the persons as one JSON array.
+     */
+    public void writeArray(Iterable<Person> persons, OutputStream out) throws IOException {
+        writeArray(MediaType.APPLICATION_JSON, persons, out);
+    }
+
+    /**
+     * Writes the persons as one array in the given supported format.
+     */
+    public void writeArray(MediaType mediaType, Iterable<Person> persons, OutputStream out) throws IOException {
+        IdBuffer id = new IdBuffer();
+        try (JsonGenerator generator = createGenerator(mediaType, out)) {
+            generator.writeStartArray();
+            for (Person person : persons) {
+                write(generator, id, person.getId(), person.getFirstName(), person.getLastName());
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * Writes projected persons as one array in the given supported format, leaving out the fields that were
+     * not selected.
+     */
+    public void writeDTOArray(MediaType mediaType, Iterable<PersonDTO> persons, OutputStream out) throws IOException {
+        IdBuffer id = new IdBuffer();
+        try (JsonGenerator generator = createGenerator(mediaType, out)) {
+            generator.writeStartArray();
+            for (PersonDTO person : persons) {
+                write(generator, id, person.getId(), person.getFirstName(), person.getLastName());
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * Writes the persons the producer hands over as newline-delimited JSON, one object per line.
+     */
+    public void writeLines(Consumer<Consumer<Person>> producer, OutputStream out) throws IOException {
+        IdBuffer id = new IdBuffer();
+        try (JsonGenerator generator = createGenerator(MediaType.APPLICATION_JSON, out)) {
+            // Root values are separated by the newlines written below, not by Jackson's default space
+            generator.setRootValueSeparator(null);
+            producer.accept(person -> {
+                try {
+                    write(generator, id, person.getId(), person.getFirstName(), person.getLastName());
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private JsonGenerator createGenerator(MediaType mediaType, OutputStream out) throws IOException {
+        JsonFactory factory = factories.get(mediaType);
+        if (factory == null) {
+            throw new IllegalArgumentException("Cannot write persons as " + mediaType);
+        }
+        return factory.createGenerator(out, JsonEncoding.UTF8)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    private static void write(JsonGenerator generator, IdBuffer buffer, UUID id, String firstName, String lastName)
+            throws IOException {
+        generator.writeStartObject();
+        if (id != null) {
+            generator.writeFieldName(ID);
+            if (generator.canWriteBinaryNatively()) {
+                bytes(id, buffer.bytes);
+                generator.writeBinary(buffer.bytes, 0, UUID_BYTES);
+            } else {
+                format(id, buffer.chars);
+                generator.writeString(buffer.chars, 0, UUID_LENGTH);
+            }
+        }
+        if (firstName != null) {
+            generator.writeFieldName(FIRST_NAME);
+            generator.writeString(firstName);
+        }
+        if (lastName != null) {
+            generator.writeFieldName(LAST_NAME);
+            generator.writeString(lastName);
+        }
+        generator.writeEndObject();
+    }
+
+    // The canonical 8-4-4-4-12 form of UUID.toString, without creating the string
+    static void format(UUID id, char[] buffer) {
+        long msb = id.getMostSignificantBits();
+        long lsb = id.getLeastSignificantBits();
+        hex(msb >>> 32, buffer, 0, 8);
+        buffer[8] = '-';
+        hex(msb >>> 16, buffer, 9, 4);
+        buffer[13] = '-';
+        hex(msb, buffer, 14, 4);
+        buffer[18] = '-';
+        hex(lsb >>> 48, buffer, 19, 4);
+        buffer[23] = '-';
+        hex(lsb, buffer, 24, 12);
+    }
+
+    // Big-endian most then least significant bits, the layout Jackson reads binary UUIDs back from
+    static void bytes(UUID id, byte[] buffer) {
+        long msb = id.getMostSignificantBits();
+        long lsb = id.getLeastSignificantBits();
+        for (int i = 7; i >= 0; i--) {
+            buffer[i] = (byte) msb;
+            buffer[i + 8] = (byte) lsb;
+            msb >>>= 8;
+            lsb >>>= 8;
+        }
+    }
+
+    private static void hex(long value, char[] buffer, int offset, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            buffer[i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+
+    // Reused for every id of one response
+    private static final class IdBuffer {
+        final char[] chars = new char[UUID_LENGTH];
+        final byte[] bytes = new byte[UUID_BYTES];
+    }
+}
@@ -0,0 +1,108 @@
+package be.solxa.peopleapi.metrics;
+
+import be.solxa.peopleapi.service.PersonService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every public PersonService method as {@code people.service}, tagged with the method as operation and
+ * whether any name filter (or, for suggestions, a prefix) was given, and records how many persons list results held as
+ * {@code people.service.results}.
+ * <p>
+ * All meters are registered up front, so a call costs a map lookup and a clock read on each side, no tag or
+ * meter creation. Runs outside the transaction advice so commit time is included.
+ */
+@Aspect
+@Component
+@Order(0)
+public class PersonServiceMetrics {
+
+    private final Map<Method, Meters[]> meters = new HashMap<>();
+
+    public PersonServiceMetrics(MeterRegistry registry) {
+        for (Method method : PersonService.class.getDeclaredMethods()) {
+            if (Modifier.isPublic(method.getModifiers()) && !Modifier.isStatic(method.getModifiers())) {
+                boolean listResult = Collection.class.isAssignableFrom(method.getReturnType())
+                        || Slice.class.isAssignableFrom(method.getReturnType());
+                meters.put(method, new Meters[]{
+                        new Meters(registry, method.getName(), false, listResult),
+                        new Meters(registry, method.getName(), true, listResult)});
+            }
+        }
+    }
+
+    @Around("execution(public * be.solxa.peopleapi.service.PersonService.*(..))")
+    public Object time(ProceedingJoinPoint call) throws Throwable {
+        Meters[] candidates = meters.get(((MethodSignature) call.getSignature()).getMethod());
+        if (candidates == null) {
+            return call.proceed();
+        }
+
+        Meters meters = candidates[isFiltered(call.getArgs()) ? 1 : 0];
+        long start = System.nanoTime();
+        try {
+            Object result = call.proceed();
+            meters.recordResults(result);
+            return result;
+        } finally {
+            meters.timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // The String arguments of the service are the name filters and the suggestion prefix, which narrows the
+    // names the same way
+    private static boolean isFiltered(Object[] args) {
+        for (Object arg : args) {
+            if (arg instanceof String value && !value.isBlank()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Meters {
+        private final Timer timer;
+        private final DistributionSummary results;
+
+        private Meters(MeterRegistry registry, String operation, boolean filtered, boolean listResult) {
+            String filteredTag = Boolean.toString(filtered);
+            this.timer = Timer.builder("people.service")
+                    .description("PersonService calls")
+                    .tag("operation", operation)
+                    .tag("filtered", filteredTag)
+                    .register(registry);
+            this.results = !listResult ? null : DistributionSummary.builder("people.service.results")
+                    .description("Persons in list results of PersonService calls")
+                    .baseUnit("persons")
+                    .tag("operation", operation)
+                    .tag("filtered", filteredTag)
+                    .register(registry);
+        }
+
+        private void recordResults(Object result) {
+            if (results == null) {
+                return;
+            }
+            if (result instanceof Collection<?> collection) {
+                results.record(collection.size());
+            } else if (result instanceof Slice<?> slice) {
+                results.record(slice.getNumberOfElements());
+            }
+        }
+    }
+}
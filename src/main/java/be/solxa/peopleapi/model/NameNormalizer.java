@@ -0,0 +1,55 @@
+package be.solxa.peopleapi.model;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Folds names to the form stored in the search columns: trimmed, accents removed and lowercased,
+ * so "  Élodie " and "ELODIE" both become "elodie".
+ */
+public final class NameNormalizer {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private NameNormalizer() {
+    }
+
+    public static String normalize(String name) {
+        if (name == null) {
+            return null;
+        }
+
+        String trimmed = name.trim();
+        if (isAscii(trimmed)) {
+            return trimmed.toLowerCase(Locale.ROOT);
+        }
+
+        String decomposed = Normalizer.normalize(trimmed, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Smallest string greater than every string starting with the given prefix, to turn a prefix match
+     * into an index range scan: {@code prefix <= value < upperBound(prefix)}.
+     */
+    public static String upperBound(String prefix) {
+        int last = prefix.length() - 1;
+        while (last >= 0 && prefix.charAt(last) == Character.MAX_VALUE) {
+            last--;
+        }
+        if (last < 0) {
+            return null;
+        }
+        return prefix.substring(0, last) + (char) (prefix.charAt(last) + 1);
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,62 @@
+package be.solxa.peopleapi.model;
+
+import org.apache.commons.codec.language.DoubleMetaphone;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Double Metaphone codes of names, so names that sound alike get a code in common: "Schmidt" is XMT
+ * (alternate SMT) and "Smith" is SM0 (alternate XMT). Names are folded with {@link NameNormalizer} first,
+ * so accents don't change the code.
+ */
+public final class NamePhonetics {
+
+    public static final int MAX_CODE_LENGTH = 4;
+
+    // Stateless once configured, safe to share between threads
+    private static final DoubleMetaphone ENCODER = new DoubleMetaphone();
+
+    static {
+        ENCODER.setMaxCodeLen(MAX_CODE_LENGTH);
+    }
+
+    private NamePhonetics() {
+    }
+
+    public static String primary(String name) {
+        return encode(name, false);
+    }
+
+    public static String alternate(String name) {
+        return encode(name, true);
+    }
+
+    /**
+     * The distinct non-empty codes of a name; two names sound alike when their code sets intersect.
+     */
+    public static Set<String> codes(String name) {
+        Set<String> codes = new LinkedHashSet<>(2);
+        addIfPresent(codes, primary(name));
+        addIfPresent(codes, alternate(name));
+        return codes;
+    }
+
+    /**
+     * Whether one of the stored codes is in the given set; an empty set matches nothing.
+     */
+    public static boolean matches(Set<String> codes, String primary, String alternate) {
+        return (primary != null && codes.contains(primary)) || (alternate != null && codes.contains(alternate));
+    }
+
+    private static String encode(String name, boolean alternate) {
+        String normalized = NameNormalizer.normalize(name);
+        return normalized == null ? null : ENCODER.doubleMetaphone(normalized, alternate);
+    }
+
+    private static void addIfPresent(Set<String> codes, String code) {
+        if (code != null && !code.isEmpty()) {
+            codes.add(code);
+        }
+    }
+}
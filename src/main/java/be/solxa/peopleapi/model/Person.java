@@ -11,9 +11,19 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_person_last_first_id", columnList = "lastName, firstName, id"),
+        @Index(name = "idx_person_first_name_search", columnList = "firstNameSearch"),
+        @Index(name = "idx_person_last_name_search", columnList = "lastNameSearch"),
+        @Index(name = "idx_person_first_name_phonetic", columnList = "firstNamePhonetic"),
+        @Index(name = "idx_person_first_name_phonetic_alt", columnList = "firstNamePhoneticAlt"),
+        @Index(name = "idx_person_last_name_phonetic", columnList = "lastNamePhonetic"),
+        @Index(name = "idx_person_last_name_phonetic_alt", columnList = "lastNamePhoneticAlt")
+})
 public class Person {
+    // Time-ordered, so new rows append to the primary key index instead of splitting random pages
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @GeneratedUuidV7
     private UUID id;
 
     @NotBlank(message = "First name cannot be empty")
@@ -22,4 +32,36 @@ public class Person {
     @NotBlank(message = "Last name cannot be empty")
     private String lastName;
 
+    // Normalized copies of the names (see NameNormalizer) that the search queries run against
+    private String firstNameSearch;
+
+    private String lastNameSearch;
+
+    // Primary and alternate Double Metaphone codes of the names (see NamePhonetics), for phonetic search
+    @Column(length = NamePhonetics.MAX_CODE_LENGTH)
+    private String firstNamePhonetic;
+
+    @Column(length = NamePhonetics.MAX_CODE_LENGTH)
+    private String firstNamePhoneticAlt;
+
+    @Column(length = NamePhonetics.MAX_CODE_LENGTH)
+    private String lastNamePhonetic;
+
+    @Column(length = NamePhonetics.MAX_CODE_LENGTH)
+    private String lastNamePhoneticAlt;
+
+    // Bumped on every update, exposed as the ETag of the person
+    @Version
+    private Long version;
+
+    @PrePersist
+    @PreUpdate
+    public void normalizeSearchColumns() {
+        firstNameSearch = NameNormalizer.normalize(firstName);
+        lastNameSearch = NameNormalizer.normalize(lastName);
+        firstNamePhonetic = NamePhonetics.primary(firstName);
+        firstNamePhoneticAlt = NamePhonetics.alternate(firstName);
+        lastNamePhonetic = NamePhonetics.primary(lastName);
+        lastNamePhoneticAlt = NamePhonetics.alternate(lastName);
+    }
 }
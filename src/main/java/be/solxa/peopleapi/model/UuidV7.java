@@ -0,0 +1,66 @@
+package be.solxa.peopleapi.model;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Generates RFC 9562 version 7 UUIDs: a 48 bit Unix millisecond timestamp followed by random bits, so ids
+ * created later sort later and inserts land at the right edge of the primary key index instead of on random pages.
+ * <p>
+ * The 12 bit {@code rand_a} field is used as a counter (RFC 9562 section 6.2, method 1). It starts at a random
+ * value in the lower half each millisecond and is incremented for every further id within that millisecond,
+ * carrying into the timestamp on overflow. Timestamp and counter are advanced together with a CAS, so ids are
+ * strictly increasing across all threads, even if the clock steps back. The remaining 62 bits are random.
+ */
+public final class UuidV7 {
+
+    private static final UuidV7 DEFAULT = new UuidV7(System::currentTimeMillis);
+
+    private static final int COUNTER_BITS = 12;
+    private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+    // Leaves at least 2048 increments per millisecond before the counter carries into the timestamp
+    private static final long COUNTER_SEED_MASK = COUNTER_MASK >>> 1;
+
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(SecureRandom::new);
+
+    private final LongSupplier clock;
+    // Timestamp in the upper bits, counter in the lower COUNTER_BITS: the last issued value, only ever grows
+    private final AtomicLong state = new AtomicLong();
+
+    UuidV7(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    public static UUID next() {
+        return DEFAULT.generate();
+    }
+
+    UUID generate() {
+        SecureRandom random = RANDOM.get();
+        long seed = random.nextLong();
+        long next;
+        long previous;
+        do {
+            previous = state.get();
+            long millis = clock.getAsLong();
+            next = millis > previous >>> COUNTER_BITS
+                    ? (millis << COUNTER_BITS) | (seed & COUNTER_SEED_MASK)
+                    : previous + 1;
+        } while (!state.compareAndSet(previous, next));
+
+        long timestamp = next >>> COUNTER_BITS;
+        long counter = next & COUNTER_MASK;
+        long msb = (timestamp << 16) | 0x7000L | counter;
+        long lsb = (random.nextLong() >>> 2) | 0x8000_0000_0000_0000L;
+        return new UUID(msb, lsb);
+    }
+
+    /**
+     * Unix timestamp in milliseconds encoded in a version 7 UUID.
+     */
+    public static long timestamp(UUID uuid) {
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+}
@@ -0,0 +1,10 @@
+package be.solxa.peopleapi.repository;
+
+/**
+ * A name and how many persons carry it.
+ */
+public interface NameCount {
+    String getName();
+
+    long getOccurrences();
+}
@@ -0,0 +1,14 @@
+package be.solxa.peopleapi.repository;
+
+import java.util.UUID;
+
+/**
+ * Projection of the names as entered, used to derive columns of existing rows.
+ */
+public interface PersonNames {
+    UUID getId();
+
+    String getFirstName();
+
+    String getLastName();
+}
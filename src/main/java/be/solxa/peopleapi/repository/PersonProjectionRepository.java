@@ -0,0 +1,20 @@
+package be.solxa.peopleapi.repository;
+
+import be.solxa.peopleapi.dto.PersonDTO;
+import be.solxa.peopleapi.dto.PersonField;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Searches that select only the requested columns straight into PersonDTO, without loading entities.
+ * Fields that were not requested are left null. Filters must be normalized, like for the entity searches.
+ */
+public interface PersonProjectionRepository {
+
+    List<PersonDTO> searchProjected(Set<PersonField> fields, String firstName, String lastName);
+
+    // Range scans like searchByNamePrefixes; a null pair leaves that name unfiltered
+    List<PersonDTO> searchProjectedByPrefix(Set<PersonField> fields, String firstFrom, String firstTo,
+                                            String lastFrom, String lastTo);
+}
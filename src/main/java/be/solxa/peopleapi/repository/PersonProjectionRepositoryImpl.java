@@ -0,0 +1,79 @@
+package be.solxa.peopleapi.repository;
+
+import be.solxa.peopleapi.dto.PersonDTO;
+import be.solxa.peopleapi.dto.PersonField;
+import be.solxa.peopleapi.model.Person;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+class PersonProjectionRepositoryImpl implements PersonProjectionRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<PersonDTO> searchProjected(Set<PersonField> fields, String firstName, String lastName) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Person> person = query.from(Person.class);
+
+        List<Predicate> predicates = new ArrayList<>(2);
+        if (firstName != null) {
+            predicates.add(cb.like(person.get("firstNameSearch"), "%" + firstName + "%"));
+        }
+        if (lastName != null) {
+            predicates.add(cb.like(person.get("lastNameSearch"), "%" + lastName + "%"));
+        }
+        return select(query, person, fields, predicates);
+    }
+
+    @Override
+    public List<PersonDTO> searchProjectedByPrefix(Set<PersonField> fields, String firstFrom, String firstTo,
+                                                   String lastFrom, String lastTo) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Person> person = query.from(Person.class);
+
+        List<Predicate> predicates = new ArrayList<>(4);
+        if (firstFrom != null) {
+            predicates.add(cb.greaterThanOrEqualTo(person.get("firstNameSearch"), firstFrom));
+            predicates.add(cb.lessThan(person.get("firstNameSearch"), firstTo));
+        }
+        if (lastFrom != null) {
+            predicates.add(cb.greaterThanOrEqualTo(person.get("lastNameSearch"), lastFrom));
+            predicates.add(cb.lessThan(person.get("lastNameSearch"), lastTo));
+        }
+        return select(query, person, fields, predicates);
+    }
+
+    // Scalar tuples: nothing enters the persistence context, so there is no entity or snapshot to build
+    private List<PersonDTO> select(CriteriaQuery<Tuple> query, Root<Person> person, Set<PersonField> fields,
+                                   List<Predicate> predicates) {
+        List<Selection<?>> selections = new ArrayList<>(fields.size());
+        for (PersonField field : fields) {
+            selections.add(person.get(field.getAttribute()).alias(field.getAttribute()));
+        }
+        query.multiselect(selections).where(predicates.toArray(new Predicate[0]));
+
+        List<Tuple> rows = entityManager.createQuery(query).getResultList();
+        List<PersonDTO> dtos = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            dtos.add(new PersonDTO(
+                    fields.contains(PersonField.ID) ? row.get("id", UUID.class) : null,
+                    fields.contains(PersonField.FIRST_NAME) ? row.get("firstName", String.class) : null,
+                    fields.contains(PersonField.LAST_NAME) ? row.get("lastName", String.class) : null));
+        }
+        return dtos;
+    }
+}
@@ -1,19 +1,168 @@
 package be.solxa.peopleapi.repository;
 
 import be.solxa.peopleapi.model.Person;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
-public interface PersonRepository extends JpaRepository<Person, UUID> {
+public interface PersonRepository extends JpaRepository<Person, UUID>, PersonProjectionRepository {
 
+    // Matches against the normalized search columns; callers should pass normalized filters
+    // (the LOWER is only applied once to the parameter, never per row)
     @Query("SELECT p FROM Person p WHERE " +
-            "(:firstName IS NULL OR LOWER(p.firstName) LIKE LOWER(CONCAT('%', :firstName, '%'))) AND " +
-            "(:lastName IS NULL OR LOWER(p.lastName) LIKE LOWER(CONCAT('%', :lastName, '%')))")
+            "(:firstName IS NULL OR p.firstNameSearch LIKE CONCAT('%', LOWER(:firstName), '%')) AND " +
+            "(:lastName IS NULL OR p.lastNameSearch LIKE CONCAT('%', LOWER(:lastName), '%'))")
     List<Person> search(@Param("firstName") String firstName, @Param("lastName") String lastName);
+
+    // Prefix searches as range scans over the search column indexes: from <= value < to
+    @Query("SELECT p FROM Person p WHERE p.firstNameSearch >= :firstFrom AND p.firstNameSearch < :firstTo")
+    List<Person> searchByFirstNamePrefix(@Param("firstFrom") String firstFrom, @Param("firstTo") String firstTo);
+
+    @Query("SELECT p FROM Person p WHERE p.lastNameSearch >= :lastFrom AND p.lastNameSearch < :lastTo")
+    List<Person> searchByLastNamePrefix(@Param("lastFrom") String lastFrom, @Param("lastTo") String lastTo);
+
+    @Query("SELECT p FROM Person p WHERE p.lastNameSearch >= :lastFrom AND p.lastNameSearch < :lastTo " +
+            "AND p.firstNameSearch >= :firstFrom AND p.firstNameSearch < :firstTo")
+    List<Person> searchByNamePrefixes(@Param("firstFrom") String firstFrom, @Param("firstTo") String firstTo,
+                                      @Param("lastFrom") String lastFrom, @Param("lastTo") String lastTo);
+
+    // Same filters as search, counted by the database instead of loading the rows
+    @Query("SELECT COUNT(p) FROM Person p WHERE " +
+            "(:firstName IS NULL OR p.firstNameSearch LIKE CONCAT('%', LOWER(:firstName), '%')) AND " +
+            "(:lastName IS NULL OR p.lastNameSearch LIKE CONCAT('%', LOWER(:lastName), '%'))")
+    long countMatching(@Param("firstName") String firstName, @Param("lastName") String lastName);
+
+    // Most common names among the persons matching the search filters, grouped by search column
+    @Query("SELECT MIN(p.firstName) AS name, COUNT(p) AS occurrences FROM Person p WHERE " +
+            "(:firstName IS NULL OR p.firstNameSearch LIKE CONCAT('%', LOWER(:firstName), '%')) AND " +
+            "(:lastName IS NULL OR p.lastNameSearch LIKE CONCAT('%', LOWER(:lastName), '%')) " +
+            "GROUP BY p.firstNameSearch ORDER BY COUNT(p) DESC, MIN(p.firstName)")
+    List<NameCount> facetFirstNames(@Param("firstName") String firstName, @Param("lastName") String lastName,
+                                    Pageable pageable);
+
+    @Query("SELECT MIN(p.lastName) AS name, COUNT(p) AS occurrences FROM Person p WHERE " +
+            "(:firstName IS NULL OR p.firstNameSearch LIKE CONCAT('%', LOWER(:firstName), '%')) AND " +
+            "(:lastName IS NULL OR p.lastNameSearch LIKE CONCAT('%', LOWER(:lastName), '%')) " +
+            "GROUP BY p.lastNameSearch ORDER BY COUNT(p) DESC, MIN(p.lastName)")
+    List<NameCount> facetLastNames(@Param("firstName") String firstName, @Param("lastName") String lastName,
+                                   Pageable pageable);
+
+    // Phonetic lookups, one per code column so each is an indexed IN; callers union primary and alternate matches
+    @Query("SELECT p FROM Person p WHERE p.firstNamePhonetic IN :codes")
+    List<Person> searchByFirstNamePhonetic(@Param("codes") Collection<String> codes);
+
+    @Query("SELECT p FROM Person p WHERE p.firstNamePhoneticAlt IN :codes")
+    List<Person> searchByFirstNamePhoneticAlt(@Param("codes") Collection<String> codes);
+
+    @Query("SELECT p FROM Person p WHERE p.lastNamePhonetic IN :codes")
+    List<Person> searchByLastNamePhonetic(@Param("codes") Collection<String> codes);
+
+    @Query("SELECT p FROM Person p WHERE p.lastNamePhoneticAlt IN :codes")
+    List<Person> searchByLastNamePhoneticAlt(@Param("codes") Collection<String> codes);
+
+    @Query("SELECT p FROM Person p WHERE " +
+            "(:firstName IS NULL OR p.firstNameSearch LIKE CONCAT('%', LOWER(:firstName), '%')) AND " +
+            "(:lastName IS NULL OR p.lastNameSearch LIKE CONCAT('%', LOWER(:lastName), '%')) " +
+            "ORDER BY p.lastName, p.firstName, p.id")
+    Slice<Person> searchFirstPage(@Param("firstName") String firstName, @Param("lastName") String lastName,
+                                  Pageable pageable);
+
+    // Seek past the cursor instead of using OFFSET; the redundant lastName bound lets the index drive the scan
+    @Query("SELECT p FROM Person p WHERE p.lastName >= :afterLastName AND " +
+            "(p.lastName > :afterLastName OR (p.lastName = :afterLastName AND " +
+            "(p.firstName > :afterFirstName OR (p.firstName = :afterFirstName AND p.id > :afterId)))) AND " +
+            "(:firstName IS NULL OR p.firstNameSearch LIKE CONCAT('%', LOWER(:firstName), '%')) AND " +
+            "(:lastName IS NULL OR p.lastNameSearch LIKE CONCAT('%', LOWER(:lastName), '%')) " +
+            "ORDER BY p.lastName, p.firstName, p.id")
+    Slice<Person> searchPageAfter(@Param("firstName") String firstName, @Param("lastName") String lastName,
+                                  @Param("afterLastName") String afterLastName,
+                                  @Param("afterFirstName") String afterFirstName,
+                                  @Param("afterId") UUID afterId,
+                                  Pageable pageable);
+
+    // Rows are pulled from the JDBC cursor in chunks of the fetch size; must be consumed inside a transaction
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Person p")
+    Stream<Person> streamAll();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p.id AS id, p.firstNameSearch AS firstNameSearch, p.lastNameSearch AS lastNameSearch, " +
+            "p.version AS version FROM Person p")
+    Stream<PersonSearchNames> streamSearchNames();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p.id AS id, p.firstName AS firstName, p.lastName AS lastName, p.version AS version FROM Person p")
+    Stream<VersionedPersonNames> streamNames();
+
+    // Most common names starting with a normalized prefix, grouped like the suggestion tries do: by search column
+    @Query("SELECT MIN(p.firstName) AS name, COUNT(p) AS occurrences FROM Person p " +
+            "WHERE p.firstNameSearch >= :from AND p.firstNameSearch < :to " +
+            "GROUP BY p.firstNameSearch ORDER BY COUNT(p) DESC, MIN(p.firstName)")
+    List<NameCount> countFirstNamesByPrefix(@Param("from") String from, @Param("to") String to, Pageable pageable);
+
+    @Query("SELECT MIN(p.lastName) AS name, COUNT(p) AS occurrences FROM Person p " +
+            "WHERE p.lastNameSearch >= :from AND p.lastNameSearch < :to " +
+            "GROUP BY p.lastNameSearch ORDER BY COUNT(p) DESC, MIN(p.lastName)")
+    List<NameCount> countLastNamesByPrefix(@Param("from") String from, @Param("to") String to, Pageable pageable);
+
+    // Single statement writes: the returned row count tells whether the person existed.
+    // Bulk updates skip entity callbacks, so the caller must derive the search and phonetic columns first.
+    @Modifying
+    @Query("UPDATE Person p SET p.firstName = :#{#details.firstName}, p.lastName = :#{#details.lastName}, " +
+            "p.firstNameSearch = :#{#details.firstNameSearch}, p.lastNameSearch = :#{#details.lastNameSearch}, " +
+            "p.firstNamePhonetic = :#{#details.firstNamePhonetic}, p.firstNamePhoneticAlt = :#{#details.firstNamePhoneticAlt}, " +
+            "p.lastNamePhonetic = :#{#details.lastNamePhonetic}, p.lastNamePhoneticAlt = :#{#details.lastNamePhoneticAlt}, " +
+            "p.version = p.version + 1 " +
+            "WHERE p.id = :id")
+    int updateById(@Param("id") UUID id, @Param("details") Person details);
+
+    // Conditional variant: also matches nothing when the person was changed since the given version
+    @Modifying
+    @Query("UPDATE Person p SET p.firstName = :#{#details.firstName}, p.lastName = :#{#details.lastName}, " +
+            "p.firstNameSearch = :#{#details.firstNameSearch}, p.lastNameSearch = :#{#details.lastNameSearch}, " +
+            "p.firstNamePhonetic = :#{#details.firstNamePhonetic}, p.firstNamePhoneticAlt = :#{#details.firstNamePhoneticAlt}, " +
+            "p.lastNamePhonetic = :#{#details.lastNamePhonetic}, p.lastNamePhoneticAlt = :#{#details.lastNamePhoneticAlt}, " +
+            "p.version = p.version + 1 " +
+            "WHERE p.id = :id AND p.version = :version")
+    int updateByIdAndVersion(@Param("id") UUID id, @Param("version") long version, @Param("details") Person details);
+
+    // Rows written before the phonetic columns existed, in id order for keyset paging (null for the first page)
+    @Query("SELECT p.id AS id, p.firstName AS firstName, p.lastName AS lastName FROM Person p " +
+            "WHERE p.lastNamePhonetic IS NULL AND (:afterId IS NULL OR p.id > :afterId) ORDER BY p.id")
+    List<PersonNames> findWithoutPhonetic(@Param("afterId") UUID afterId, Pageable pageable);
+
+    // Only fills in the codes while the names are still the ones they were derived from; no version bump,
+    // the person itself did not change
+    @Modifying
+    @Query("UPDATE Person p SET p.firstNamePhonetic = :#{#codes.firstNamePhonetic}, " +
+            "p.firstNamePhoneticAlt = :#{#codes.firstNamePhoneticAlt}, " +
+            "p.lastNamePhonetic = :#{#codes.lastNamePhonetic}, p.lastNamePhoneticAlt = :#{#codes.lastNamePhoneticAlt} " +
+            "WHERE p.id = :#{#codes.id} AND p.firstName = :#{#codes.firstName} AND p.lastName = :#{#codes.lastName}")
+    int updatePhonetic(@Param("codes") Person codes);
+
+    @Modifying
+    @Query("DELETE FROM Person p WHERE p.id = :id")
+    int removeById(@Param("id") UUID id);
 }
@@ -0,0 +1,16 @@
+package be.solxa.peopleapi.repository;
+
+import java.util.UUID;
+
+/**
+ * Projection of the normalized search columns and the row version, used to build in-memory name indexes.
+ */
+public interface PersonSearchNames {
+    UUID getId();
+
+    String getFirstNameSearch();
+
+    String getLastNameSearch();
+
+    Long getVersion();
+}
@@ -0,0 +1,9 @@
+package be.solxa.peopleapi.repository;
+
+/**
+ * Projection of the names together with the row version, so changes published before the row was read can be
+ * told apart from later ones.
+ */
+public interface VersionedPersonNames extends PersonNames {
+    Long getVersion();
+}
@@ -0,0 +1,63 @@
+package be.solxa.peopleapi.search;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive ints, used for posting lists so that millions of entries
+ * don't turn into millions of boxed objects.
+ */
+final class IntList {
+
+    private int[] values;
+    private int size;
+
+    IntList() {
+        this(4);
+    }
+
+    IntList(int capacity) {
+        values = new int[Math.max(1, capacity)];
+    }
+
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size + (size >> 1) + 1);
+        }
+        values[size++] = value;
+    }
+
+    int get(int index) {
+        return values[index];
+    }
+
+    int last() {
+        return size == 0 ? -1 : values[size - 1];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void trimToSize() {
+        if (values.length != size) {
+            values = Arrays.copyOf(values, Math.max(1, size));
+        }
+    }
+
+    /**
+     * Index of the first element at or after {@code from} that is >= {@code target}, or {@link #size()}.
+     * Probes with exponentially growing steps first, which keeps intersections of a short list with a long
+     * one close to O(short * log(long)).
+     */
+    int seek(int from, int target) {
+        int bound = 1;
+        int low = from;
+        while (low + bound < size && values[low + bound] < target) {
+            low += bound;
+            bound <<= 1;
+        }
+        int high = Math.min(size, low + bound + 1);
+        int found = Arrays.binarySearch(values, low, high, target);
+        return found >= 0 ? found : -found - 1;
+    }
+}
@@ -0,0 +1,245 @@
+package be.solxa.peopleapi.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+/**
+ * Compact (radix) trie of the distinct values of one name field, with how many persons carry each value,
+ * answering "the k most common names starting with x".
+ * <p>
+ * Keys are normalized names (see {@code NameNormalizer}); each key also keeps the name as last written, which
+ * is what suggestions show. Every node knows the highest count in its subtree, so a top-k query is a best-first
+ * walk that only opens the subtrees that can still contribute. Persons are tracked by id, so an update or delete
+ * moves or drops their occurrence without being told the previous name.
+ * <p>
+ * Not thread-safe: callers serialize writes against reads.
+ */
+public class NameTrie {
+
+    private static final int ABSENT = -1;
+
+    public record Suggestion(String name, int count) {
+    }
+
+    private final Node root = new Node(new char[0], null);
+    // Terminal node of every key ever added, by term number; ids map to the term of their current name
+    private final List<Node> terms = new ArrayList<>();
+    private final UuidIntMap termOfId;
+
+    public NameTrie(int expectedPersons) {
+        termOfId = new UuidIntMap(expectedPersons);
+    }
+
+    /**
+     * Counts the person under the given key, first removing the occurrence of its previous name if any.
+     */
+    public void put(UUID id, String key, String name) {
+        remove(id);
+        if (key == null || key.isEmpty()) {
+            return;
+        }
+
+        Node node = insert(key);
+        if (node.term == ABSENT) {
+            node.term = terms.size();
+            terms.add(node);
+        }
+        node.name = name.trim();
+        node.count++;
+        termOfId.put(id, node.term);
+        updateMaxima(node);
+    }
+
+    public void remove(UUID id) {
+        int term = termOfId.remove(id);
+        if (term == ABSENT) {
+            return;
+        }
+        Node node = terms.get(term);
+        node.count--;
+        updateMaxima(node);
+    }
+
+    public int persons() {
+        return termOfId.size();
+    }
+
+    /**
+     * The most common names whose key starts with the given normalized prefix, most common first.
+     */
+    public List<Suggestion> top(String prefix, int limit) {
+        Node start = find(prefix);
+        if (start == null || start.max == 0 || limit <= 0) {
+            return List.of();
+        }
+
+        // Subtrees are queued by the best count they hold, names by their own count; at equal priority a
+        // name comes out before a subtree, as nothing in that subtree can beat it
+        PriorityQueue<Candidate> queue = new PriorityQueue<>();
+        queue.add(new Candidate(start, start.max, false));
+        List<Suggestion> suggestions = new ArrayList<>(limit);
+        while (!queue.isEmpty() && suggestions.size() < limit) {
+            Candidate next = queue.poll();
+            Node node = next.node;
+            if (next.name) {
+                suggestions.add(new Suggestion(node.name, node.count));
+                continue;
+            }
+            if (node.count > 0) {
+                queue.add(new Candidate(node, node.count, true));
+            }
+            for (Node child : node.children) {
+                if (child.max > 0) {
+                    queue.add(new Candidate(child, child.max, false));
+                }
+            }
+        }
+        return suggestions;
+    }
+
+    private record Candidate(Node node, int priority, boolean name) implements Comparable<Candidate> {
+        @Override
+        public int compareTo(Candidate other) {
+            if (priority != other.priority) {
+                return Integer.compare(other.priority, priority);
+            }
+            return Boolean.compare(other.name, name);
+        }
+    }
+
+    // Node whose subtree holds exactly the keys starting with the prefix, or null if there are none
+    private Node find(String prefix) {
+        Node node = root;
+        int depth = 0;
+        while (depth < prefix.length()) {
+            Node child = node.child(prefix.charAt(depth));
+            if (child == null) {
+                return null;
+            }
+            int matched = child.matchLength(prefix, depth);
+            if (depth + matched == prefix.length()) {
+                return child;
+            }
+            if (matched < child.label.length) {
+                return null;
+            }
+            node = child;
+            depth += matched;
+        }
+        return node;
+    }
+
+    private Node insert(String key) {
+        Node node = root;
+        int depth = 0;
+        while (depth < key.length()) {
+            Node child = node.child(key.charAt(depth));
+            if (child == null) {
+                Node leaf = new Node(key.substring(depth).toCharArray(), node);
+                node.addChild(leaf);
+                return leaf;
+            }
+            int matched = child.matchLength(key, depth);
+            if (matched < child.label.length) {
+                child = split(child, matched);
+            }
+            node = child;
+            depth += matched;
+        }
+        return node;
+    }
+
+    // Cuts the node's label after the given length; the node keeps its identity (and term) as the lower half
+    private static Node split(Node node, int length) {
+        Node parent = node.parent;
+        Node upper = new Node(Arrays.copyOf(node.label, length), parent);
+        parent.replaceChild(node, upper);
+        node.label = Arrays.copyOfRange(node.label, length, node.label.length);
+        node.parent = upper;
+        upper.addChild(node);
+        upper.max = node.max;
+        return upper;
+    }
+
+    private static void updateMaxima(Node node) {
+        for (Node current = node; current != null; current = current.parent) {
+            int max = current.count;
+            for (Node child : current.children) {
+                max = Math.max(max, child.max);
+            }
+            if (max == current.max && current != node) {
+                return;
+            }
+            current.max = max;
+        }
+    }
+
+    private static final class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private char[] label;
+        private Node parent;
+        // Sorted by the first character of their label
+        private Node[] children = NO_CHILDREN;
+        private int term = ABSENT;
+        private String name;
+        private int count;
+        private int max;
+
+        private Node(char[] label, Node parent) {
+            this.label = label;
+            this.parent = parent;
+        }
+
+        private Node child(char first) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char c = children[mid].label[0];
+                if (c < first) {
+                    low = mid + 1;
+                } else if (c > first) {
+                    high = mid - 1;
+                } else {
+                    return children[mid];
+                }
+            }
+            return null;
+        }
+
+        private void addChild(Node child) {
+            int at = 0;
+            while (at < children.length && children[at].label[0] < child.label[0]) {
+                at++;
+            }
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, at);
+            grown[at] = child;
+            System.arraycopy(children, at, grown, at + 1, children.length - at);
+            children = grown;
+        }
+
+        private void replaceChild(Node old, Node replacement) {
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] == old) {
+                    children[i] = replacement;
+                    return;
+                }
+            }
+        }
+
+        // How many characters of the label match the key from the given offset
+        private int matchLength(String key, int offset) {
+            int length = Math.min(label.length, key.length() - offset);
+            int matched = 0;
+            while (matched < length && label[matched] == key.charAt(offset + matched)) {
+                matched++;
+            }
+            return matched;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package be.solxa.peopleapi.search;
+
+import be.solxa.peopleapi.PeopleApiProperties;
+import be.solxa.peopleapi.dto.PersonField;
+import be.solxa.peopleapi.event.PersonChangedEvent;
+import be.solxa.peopleapi.model.NameNormalizer;
+import be.solxa.peopleapi.repository.VersionedPersonNames;
+import be.solxa.peopleapi.repository.PersonRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Name suggestions from one {@link NameTrie} per name field, kept in sync with the table when
+ * {@code people.search.suggest.enabled} is set. The tries are built off-thread once the application is ready
+ * and swapped in whole; until then (or when disabled) {@link #suggest} returns empty and callers query the
+ * database.
+ * <p>
+ * After-commit listeners of concurrent writes to one person can run in the reverse of commit order, so the
+ * version applied last is remembered per person and older changes are dropped. Deleted persons keep a marker
+ * until the next rebuild, so a late update can't bring them back.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PersonNameSuggester {
+
+    private final PersonRepository personRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final PeopleApiProperties properties;
+
+    // The tries are not thread-safe: changes take the write lock, suggestions the read lock. A rebuild only
+    // holds it to start recording changes and to swap.
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Tries tries;
+    private Queue<PersonChangedEvent> changesDuringRebuild;
+
+    // Versions are stored as ints, far beyond what a person is ever updated
+    private static final int DELETED = Integer.MAX_VALUE;
+    private static final int UNKNOWN = -1;
+
+    private record Tries(NameTrie firstNames, NameTrie lastNames, UuidIntMap versions) {
+        private NameTrie of(PersonField field) {
+            return field == PersonField.FIRST_NAME ? firstNames : lastNames;
+        }
+    }
+
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return tries != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The most common values of the name field starting with the prefix, or empty if the tries aren't built.
+     */
+    public Optional<List<NameTrie.Suggestion>> suggest(PersonField field, String prefix, int limit) {
+        String key = NameNormalizer.normalize(prefix == null ? "" : prefix);
+        lock.readLock().lock();
+        try {
+            if (tries == null) {
+                return Optional.empty();
+            }
+            return Optional.of(tries.of(field).top(key, limit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (properties.getSearch().getSuggest().isEnabled()) {
+            Thread.ofPlatform().name("name-suggest-rebuild").daemon().start(this::rebuild);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPersonChanged(PersonChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(event);
+            }
+            if (tries != null) {
+                apply(tries, event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuilds both tries from the table without blocking suggestions, and swaps them in. Changes committed
+     * while the table is being read are replayed on the new tries before they become visible.
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild = new ConcurrentLinkedQueue<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Tries rebuilt;
+        try {
+            rebuilt = loadTries();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.error("Name suggestion rebuild failed, suggestions keep using the database", e);
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild.forEach(event -> apply(rebuilt, event));
+            changesDuringRebuild = null;
+            tries = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Name suggestions built for {} persons in {} ms",
+                rebuilt.lastNames().persons(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private Tries loadTries() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return readOnly.execute(status -> {
+            int expected = (int) Math.min(Integer.MAX_VALUE / 4, personRepository.count());
+            Tries loaded = new Tries(new NameTrie(expected), new NameTrie(expected), new UuidIntMap(expected));
+            try (Stream<VersionedPersonNames> rows = personRepository.streamNames()) {
+                rows.forEach(row -> {
+                    loaded.firstNames().put(row.getId(), NameNormalizer.normalize(row.getFirstName()), row.getFirstName());
+                    loaded.lastNames().put(row.getId(), NameNormalizer.normalize(row.getLastName()), row.getLastName());
+                    if (row.getVersion() != null) {
+                        loaded.versions().put(row.getId(), version(row.getVersion()));
+                    }
+                });
+            }
+            return loaded;
+        });
+    }
+
+    // Changes replayed after a rebuild are dropped the same way when the table already had them
+    private static void apply(Tries target, PersonChangedEvent event) {
+        int applied = target.versions().get(event.getId());
+        if (applied == DELETED) {
+            return;
+        }
+        if (event.getType() == PersonChangedEvent.Type.DELETED) {
+            target.firstNames().remove(event.getId());
+            target.lastNames().remove(event.getId());
+            target.versions().put(event.getId(), DELETED);
+            return;
+        }
+
+        // An unconditional update doesn't know its version (reading it back would cost a statement), so
+        // the change can't be ordered and is applied as it comes
+        if (event.getVersion() != null) {
+            int version = version(event.getVersion());
+            if (applied != UNKNOWN && version <= applied) {
+                return;
+            }
+            target.versions().put(event.getId(), version);
+        }
+        target.firstNames().put(event.getId(), NameNormalizer.normalize(event.getFirstName()), event.getFirstName());
+        target.lastNames().put(event.getId(), NameNormalizer.normalize(event.getLastName()), event.getLastName());
+    }
+
+    private static int version(long version) {
+        return (int) Math.min(version, DELETED - 1);
+    }
+}
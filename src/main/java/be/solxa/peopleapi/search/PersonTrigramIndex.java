@@ -0,0 +1,159 @@
+package be.solxa.peopleapi.search;
+
+import be.solxa.peopleapi.PeopleApiProperties;
+import be.solxa.peopleapi.event.PersonChangedEvent;
+import be.solxa.peopleapi.model.NameNormalizer;
+import be.solxa.peopleapi.repository.PersonRepository;
+import be.solxa.peopleapi.repository.PersonSearchNames;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Keeps a {@link TrigramIndex} of all person names in sync with the table when
+ * {@code people.search.trigram.enabled} is set. The index is built in the background once the application
+ * is ready; until then (or when disabled) {@link #search} returns empty and callers query the database.
+ * <p>
+ * After-commit listeners of concurrent writes to one person can run in the reverse of commit order, so changes
+ * carry their row version and the index drops older ones; deleted persons stay out until the next rebuild.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PersonTrigramIndex {
+
+    private final PersonRepository personRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final PeopleApiProperties properties;
+
+    // Guards swapping in a rebuilt index: writers apply changes under the read lock, the swap takes the write lock
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private volatile TrigramIndex index;
+    private Queue<PersonChangedEvent> changesDuringRebuild;
+
+    public boolean isReady() {
+        return index != null;
+    }
+
+    /**
+     * Ids of the persons whose names contain the given normalized filters, or empty if the index can't answer.
+     */
+    public Optional<List<UUID>> search(String firstName, String lastName) {
+        TrigramIndex current = index;
+        if (current == null) {
+            return Optional.empty();
+        }
+        return current.search(firstName, lastName, properties.getSearch().getTrigram().getMaxResults());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (properties.getSearch().getTrigram().isEnabled()) {
+            Thread.ofPlatform().name("trigram-index-rebuild").daemon().start(this::rebuild);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPersonChanged(PersonChangedEvent event) {
+        swapLock.readLock().lock();
+        try {
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(event);
+            }
+            if (index != null) {
+                apply(index, event);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the whole index from the table, shards in parallel, and swaps it in. Changes committed
+     * while the table is being read are replayed on the new index before it becomes visible.
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        swapLock.writeLock().lock();
+        try {
+            changesDuringRebuild = new ConcurrentLinkedQueue<>();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+
+        TrigramIndex rebuilt = buildFromTable();
+        if (rebuilt == null) {
+            return;
+        }
+
+        swapLock.writeLock().lock();
+        try {
+            changesDuringRebuild.forEach(event -> apply(rebuilt, event));
+            changesDuringRebuild = null;
+            index = rebuilt;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        log.info("Trigram index built with {} persons in {} ms", rebuilt.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private TrigramIndex buildFromTable() {
+        try {
+            return TrigramIndex.build(shardCount(), loadEntries());
+        } catch (RuntimeException e) {
+            swapLock.writeLock().lock();
+            try {
+                changesDuringRebuild = null;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+            log.error("Trigram index rebuild failed, searches keep using the database", e);
+            return null;
+        }
+    }
+
+    private List<TrigramIndex.Entry> loadEntries() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return readOnly.execute(status -> {
+            List<TrigramIndex.Entry> entries = new ArrayList<>();
+            try (Stream<PersonSearchNames> rows = personRepository.streamSearchNames()) {
+                rows.forEach(row -> entries.add(
+                        new TrigramIndex.Entry(row.getId(), row.getFirstNameSearch(), row.getLastNameSearch(),
+                                row.getVersion())));
+            }
+            return entries;
+        });
+    }
+
+    private int shardCount() {
+        int shards = properties.getSearch().getTrigram().getShards();
+        return shards > 0 ? shards : Runtime.getRuntime().availableProcessors() * 2;
+    }
+
+    // Changes replayed after a rebuild are dropped the same way when the table already had them
+    private static void apply(TrigramIndex target, PersonChangedEvent event) {
+        if (event.getType() == PersonChangedEvent.Type.DELETED) {
+            target.remove(event.getId());
+        } else {
+            target.upsert(event.getId(),
+                    NameNormalizer.normalize(event.getFirstName()),
+                    NameNormalizer.normalize(event.getLastName()),
+                    event.getVersion());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package be.solxa.peopleapi.search;
+
+import be.solxa.peopleapi.PeopleApiProperties;
+import be.solxa.peopleapi.model.Person;
+import be.solxa.peopleapi.repository.PersonNames;
+import be.solxa.peopleapi.repository.PersonRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Fills in the phonetic columns of persons written before those columns existed. One thread pages through
+ * the rows without codes in id order while {@code backfill-threads} workers encode and update the chunks,
+ * each in its own transaction. Persons written meanwhile get their codes from the entity callbacks, and an
+ * update racing with the backfill wins: codes are only stored while the names are unchanged.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PhoneticBackfill {
+
+    private final PersonRepository personRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final PeopleApiProperties properties;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (properties.getSearch().getPhonetic().isBackfillOnStartup()) {
+            Thread.ofPlatform().name("phonetic-backfill").daemon().start(this::runQuietly);
+        }
+    }
+
+    /**
+     * Backfills every row without codes and returns how many were updated.
+     */
+    public synchronized int run() {
+        long start = System.nanoTime();
+        PeopleApiProperties.Phonetic config = properties.getSearch().getPhonetic();
+        int threads = Math.max(1, config.getBackfillThreads());
+        // Bounds how far reading runs ahead of the workers, and with it the rows held in memory
+        Semaphore inFlight = new Semaphore(threads * 2);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        List<Future<Integer>> chunks = new ArrayList<>();
+        try (ExecutorService workers = Executors.newFixedThreadPool(threads,
+                Thread.ofPlatform().name("phonetic-backfill-", 0).daemon().factory())) {
+            UUID after = null;
+            List<PersonNames> chunk;
+            do {
+                chunk = personRepository.findWithoutPhonetic(after, PageRequest.ofSize(config.getBackfillChunkSize()));
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                after = chunk.getLast().getId();
+                inFlight.acquireUninterruptibly();
+                List<PersonNames> rows = chunk;
+                chunks.add(workers.submit(() -> {
+                    try {
+                        return transaction.execute(status -> update(rows));
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+            } while (chunk.size() == config.getBackfillChunkSize());
+        }
+
+        int updated = 0;
+        for (Future<Integer> result : chunks) {
+            updated += join(result);
+        }
+        if (updated > 0) {
+            log.info("Phonetic codes backfilled for {} persons in {} ms", updated, (System.nanoTime() - start) / 1_000_000);
+        }
+        return updated;
+    }
+
+    private void runQuietly() {
+        try {
+            run();
+        } catch (RuntimeException e) {
+            log.error("Phonetic backfill failed, persons without codes are not found by phonetic searches", e);
+        }
+    }
+
+    private int update(List<PersonNames> rows) {
+        int updated = 0;
+        for (PersonNames row : rows) {
+            Person codes = new Person();
+            codes.setId(row.getId());
+            codes.setFirstName(row.getFirstName());
+            codes.setLastName(row.getLastName());
+            codes.normalizeSearchColumns();
+            updated += personRepository.updatePhonetic(codes);
+        }
+        return updated;
+    }
+
+    private static int join(Future<Integer> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the phonetic backfill", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Phonetic backfill chunk failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package be.solxa.peopleapi.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * Inverted index from name trigrams to persons, answering "name contains x" without scanning every name.
+ * <p>
+ * Names are expected in normalized form (see {@code NameNormalizer}). The index is split into shards by id,
+ * each with its own lock, posting lists of primitive ordinals and a copy of the indexed names used to verify
+ * candidates. Updates and deletes tombstone the old ordinal; a shard compacts itself once half of it is dead.
+ * <p>
+ * Changes can arrive out of order, so each shard remembers the version applied last per person and drops older
+ * ones. Removed persons keep a marker for the life of the index, so a late update can't bring them back.
+ */
+public class TrigramIndex {
+
+    private static final int GRAM = 3;
+    private static final int COMPACTION_MIN_SIZE = 1024;
+
+    // Versions are stored as ints, far beyond what a person is ever updated
+    private static final int DELETED = Integer.MAX_VALUE;
+    private static final int UNKNOWN = -1;
+
+    /**
+     * A person to index, with the row version it was read at or null when unknown.
+     */
+    public record Entry(UUID id, String firstName, String lastName, Long version) {
+        public Entry(UUID id, String firstName, String lastName) {
+            this(id, firstName, lastName, null);
+        }
+    }
+
+    private final Shard[] shards;
+
+    public TrigramIndex(int shardCount) {
+        int count = Integer.highestOneBit(Math.max(1, shardCount));
+        shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard(16);
+        }
+    }
+
+    /**
+     * Builds an index over all entries, filling the shards in parallel.
+     */
+    public static TrigramIndex build(int shardCount, List<Entry> entries) {
+        TrigramIndex index = new TrigramIndex(shardCount);
+        int shards = index.shards.length;
+        List<List<Entry>> partitions = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            partitions.add(new ArrayList<>(entries.size() / shards + 1));
+        }
+        for (Entry entry : entries) {
+            partitions.get(index.shardOf(entry.id())).add(entry);
+        }
+
+        IntStream.range(0, shards).parallel().forEach(i -> {
+            Shard shard = new Shard(partitions.get(i).size());
+            partitions.get(i).forEach(entry -> {
+                shard.append(entry.id(), entry.firstName(), entry.lastName());
+                if (entry.version() != null) {
+                    shard.versions.put(entry.id(), version(entry.version()));
+                }
+            });
+            shard.trim();
+            index.shards[i] = shard;
+        });
+        return index;
+    }
+
+    public void upsert(UUID id, String firstName, String lastName) {
+        upsert(id, firstName, lastName, null);
+    }
+
+    /**
+     * Indexes the names of the person unless a later version or a removal was applied already. Without a
+     * version the change can't be ordered and is applied as it comes.
+     */
+    public void upsert(UUID id, String firstName, String lastName, Long version) {
+        shards[shardOf(id)].upsert(id, firstName, lastName, version);
+    }
+
+    public void remove(UUID id) {
+        shards[shardOf(id)].remove(id);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            size += shard.liveCount();
+        }
+        return size;
+    }
+
+    /**
+     * Ids of the persons whose names contain the given (normalized) filters. Empty when the index
+     * can't narrow the search down: no filter has a full trigram, or more than {@code maxResults} persons match.
+     */
+    public Optional<List<UUID>> search(String firstName, String lastName, int maxResults) {
+        long[] firstGrams = trigrams(firstName);
+        long[] lastGrams = trigrams(lastName);
+        if (firstGrams.length == 0 && lastGrams.length == 0) {
+            return Optional.empty();
+        }
+
+        List<UUID> matches = new ArrayList<>();
+        for (Shard shard : shards) {
+            if (!shard.search(firstName, firstGrams, lastName, lastGrams, matches, maxResults)) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(matches);
+    }
+
+    private static int version(long version) {
+        return (int) Math.min(version, DELETED - 1);
+    }
+
+    private int shardOf(UUID id) {
+        long bits = id.getMostSignificantBits() ^ id.getLeastSignificantBits();
+        int hash = (int) (bits ^ (bits >>> 32));
+        return (hash ^ (hash >>> 16)) & (shards.length - 1);
+    }
+
+    // Distinct trigrams of the value, each packed as three 16 bit chars
+    static long[] trigrams(String value) {
+        if (value == null || value.length() < GRAM) {
+            return new long[0];
+        }
+        long[] grams = new long[value.length() - GRAM + 1];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = ((long) value.charAt(i) << 32) | ((long) value.charAt(i + 1) << 16) | value.charAt(i + 2);
+        }
+        return Arrays.stream(grams).distinct().toArray();
+    }
+
+    private static final class Shard {
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private long[] mostBits;
+        private long[] leastBits;
+        private String[] firstNames;
+        private String[] lastNames;
+        private int size;
+
+        private final BitSet deleted = new BitSet();
+        private int deletedCount;
+
+        private UuidIntMap ordinals;
+        // Survives compaction, unlike the ordinals
+        private final UuidIntMap versions;
+        private Map<Long, IntList> firstPostings = new HashMap<>();
+        private Map<Long, IntList> lastPostings = new HashMap<>();
+
+        Shard(int capacity) {
+            int initial = Math.max(16, capacity);
+            mostBits = new long[initial];
+            leastBits = new long[initial];
+            firstNames = new String[initial];
+            lastNames = new String[initial];
+            ordinals = new UuidIntMap(initial);
+            versions = new UuidIntMap(initial);
+        }
+
+        int liveCount() {
+            lock.readLock().lock();
+            try {
+                return size - deletedCount;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void upsert(UUID id, String firstName, String lastName, Long version) {
+            lock.writeLock().lock();
+            try {
+                int applied = versions.get(id);
+                if (applied == DELETED) {
+                    return;
+                }
+                if (version != null) {
+                    int next = version(version);
+                    if (applied != UNKNOWN && next <= applied) {
+                        return;
+                    }
+                    versions.put(id, next);
+                }
+                tombstone(ordinals.get(id));
+                append(id, firstName, lastName);
+                compactIfSparse();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(UUID id) {
+            lock.writeLock().lock();
+            try {
+                tombstone(ordinals.remove(id));
+                versions.put(id, DELETED);
+                compactIfSparse();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        boolean search(String firstName, long[] firstGrams, String lastName, long[] lastGrams,
+                       List<UUID> matches, int maxResults) {
+            lock.readLock().lock();
+            try {
+                List<IntList> lists = new ArrayList<>(firstGrams.length + lastGrams.length);
+                if (!collect(firstPostings, firstGrams, lists) || !collect(lastPostings, lastGrams, lists)) {
+                    return true;
+                }
+                lists.sort(Comparator.comparingInt(IntList::size));
+
+                // Walk the shortest list and seek every other list to each of its ordinals
+                IntList shortest = lists.getFirst();
+                int[] positions = new int[lists.size()];
+                candidates:
+                for (int i = 0; i < shortest.size(); i++) {
+                    int ordinal = shortest.get(i);
+                    for (int l = 1; l < lists.size(); l++) {
+                        IntList list = lists.get(l);
+                        positions[l] = list.seek(positions[l], ordinal);
+                        if (positions[l] == list.size()) {
+                            break candidates;
+                        }
+                        if (list.get(positions[l]) != ordinal) {
+                            continue candidates;
+                        }
+                    }
+                    if (!deleted.get(ordinal)
+                            && (firstName == null || firstNames[ordinal].contains(firstName))
+                            && (lastName == null || lastNames[ordinal].contains(lastName))) {
+                        if (matches.size() == maxResults) {
+                            return false;
+                        }
+                        matches.add(new UUID(mostBits[ordinal], leastBits[ordinal]));
+                    }
+                }
+                return true;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private static boolean collect(Map<Long, IntList> postings, long[] grams, List<IntList> lists) {
+            for (long gram : grams) {
+                IntList list = postings.get(gram);
+                if (list == null) {
+                    return false;
+                }
+                lists.add(list);
+            }
+            return true;
+        }
+
+        // Callers hold the write lock (or own the shard exclusively while building)
+        void append(UUID id, String firstName, String lastName) {
+            if (size == mostBits.length) {
+                int capacity = size + (size >> 1);
+                mostBits = Arrays.copyOf(mostBits, capacity);
+                leastBits = Arrays.copyOf(leastBits, capacity);
+                firstNames = Arrays.copyOf(firstNames, capacity);
+                lastNames = Arrays.copyOf(lastNames, capacity);
+            }
+            int ordinal = size++;
+            mostBits[ordinal] = id.getMostSignificantBits();
+            leastBits[ordinal] = id.getLeastSignificantBits();
+            firstNames[ordinal] = firstName == null ? "" : firstName;
+            lastNames[ordinal] = lastName == null ? "" : lastName;
+            ordinals.put(id, ordinal);
+            addPostings(firstPostings, firstNames[ordinal], ordinal);
+            addPostings(lastPostings, lastNames[ordinal], ordinal);
+        }
+
+        private static void addPostings(Map<Long, IntList> postings, String name, int ordinal) {
+            for (long gram : trigrams(name)) {
+                postings.computeIfAbsent(gram, key -> new IntList()).add(ordinal);
+            }
+        }
+
+        private void tombstone(int ordinal) {
+            if (ordinal >= 0 && !deleted.get(ordinal)) {
+                deleted.set(ordinal);
+                deletedCount++;
+            }
+        }
+
+        private void compactIfSparse() {
+            if (size < COMPACTION_MIN_SIZE || deletedCount * 2 < size) {
+                return;
+            }
+            long[] oldMost = mostBits;
+            long[] oldLeast = leastBits;
+            String[] oldFirst = firstNames;
+            String[] oldLast = lastNames;
+            int oldSize = size;
+            int live = size - deletedCount;
+
+            mostBits = new long[Math.max(16, live)];
+            leastBits = new long[mostBits.length];
+            firstNames = new String[mostBits.length];
+            lastNames = new String[mostBits.length];
+            ordinals = new UuidIntMap(live);
+            firstPostings = new HashMap<>();
+            lastPostings = new HashMap<>();
+            size = 0;
+            for (int ordinal = 0; ordinal < oldSize; ordinal++) {
+                if (!deleted.get(ordinal)) {
+                    append(new UUID(oldMost[ordinal], oldLeast[ordinal]), oldFirst[ordinal], oldLast[ordinal]);
+                }
+            }
+            deleted.clear();
+            deletedCount = 0;
+            trim();
+        }
+
+        void trim() {
+            firstPostings.values().forEach(IntList::trimToSize);
+            lastPostings.values().forEach(IntList::trimToSize);
+        }
+    }
+}
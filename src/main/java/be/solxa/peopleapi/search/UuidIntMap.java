@@ -0,0 +1,122 @@
+package be.solxa.peopleapi.search;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Open addressing map from UUID to a non-negative int, storing the two halves of the key in
+ * primitive arrays (linear probing, backward shift deletion).
+ */
+final class UuidIntMap {
+
+    private static final int FREE = -1;
+
+    private long[] mostBits;
+    private long[] leastBits;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    UuidIntMap(int expectedSize) {
+        allocate(Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(UUID key) {
+        long most = key.getMostSignificantBits();
+        long least = key.getLeastSignificantBits();
+        for (int slot = slot(most, least); ; slot = (slot + 1) & mask) {
+            int value = values[slot];
+            if (value == FREE) {
+                return FREE;
+            }
+            if (mostBits[slot] == most && leastBits[slot] == least) {
+                return value;
+            }
+        }
+    }
+
+    void put(UUID key, int value) {
+        if ((size + 1) * 2 > values.length) {
+            resize();
+        }
+        put(key.getMostSignificantBits(), key.getLeastSignificantBits(), value);
+    }
+
+    private void put(long most, long least, int value) {
+        for (int slot = slot(most, least); ; slot = (slot + 1) & mask) {
+            if (values[slot] == FREE) {
+                mostBits[slot] = most;
+                leastBits[slot] = least;
+                values[slot] = value;
+                size++;
+                return;
+            }
+            if (mostBits[slot] == most && leastBits[slot] == least) {
+                values[slot] = value;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes the key and returns its value, or -1 if it was absent.
+     */
+    int remove(UUID key) {
+        long most = key.getMostSignificantBits();
+        long least = key.getLeastSignificantBits();
+        int slot = slot(most, least);
+        while (values[slot] != FREE && (mostBits[slot] != most || leastBits[slot] != least)) {
+            slot = (slot + 1) & mask;
+        }
+        int removed = values[slot];
+        if (removed == FREE) {
+            return FREE;
+        }
+
+        // Shift back later entries of the probe run so lookups never stop at the hole
+        int gap = slot;
+        values[gap] = FREE;
+        for (int next = (gap + 1) & mask; values[next] != FREE; next = (next + 1) & mask) {
+            int home = slot(mostBits[next], leastBits[next]);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                mostBits[gap] = mostBits[next];
+                leastBits[gap] = leastBits[next];
+                values[gap] = values[next];
+                values[next] = FREE;
+                gap = next;
+            }
+        }
+        size--;
+        return removed;
+    }
+
+    private int slot(long most, long least) {
+        long hash = (most ^ least) * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        mostBits = new long[capacity];
+        leastBits = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, FREE);
+        mask = capacity - 1;
+    }
+
+    private void resize() {
+        long[] oldMost = mostBits;
+        long[] oldLeast = leastBits;
+        int[] oldValues = values;
+        allocate(values.length << 1);
+        size = 0;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != FREE) {
+                put(oldMost[i], oldLeast[i], oldValues[i]);
+            }
+        }
+    }
+}
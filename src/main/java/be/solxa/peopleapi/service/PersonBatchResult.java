@@ -0,0 +1,20 @@
+package be.solxa.peopleapi.service;
+
+import be.solxa.peopleapi.model.Person;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Outcome of one item of a bulk create: either the created person or the reason it was rejected.
+ */
+@Getter
+@AllArgsConstructor
+public class PersonBatchResult {
+    private final int index;
+    private final Person person;
+    private final String error;
+
+    public boolean isCreated() {
+        return error == null;
+    }
+}
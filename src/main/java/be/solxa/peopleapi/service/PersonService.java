@@ -1,60 +1,487 @@
 package be.solxa.peopleapi.service;
 
+import be.solxa.peopleapi.PeopleApiProperties;
+import be.solxa.peopleapi.cache.PersonCache;
+import be.solxa.peopleapi.cache.PersonGeneration;
+import be.solxa.peopleapi.cache.PersonReadCoalescer;
+import be.solxa.peopleapi.cache.PersonReadCoalescer.ListRead;
+import be.solxa.peopleapi.cache.SearchResultCache;
+import be.solxa.peopleapi.dto.PersonCursor;
+import be.solxa.peopleapi.dto.PersonDTO;
+import be.solxa.peopleapi.dto.PersonField;
+import be.solxa.peopleapi.event.PersonChangedEvent;
+import be.solxa.peopleapi.exception.PersonNotWrittenException;
 import be.solxa.peopleapi.exception.PersonValidationException;
+import be.solxa.peopleapi.exception.PersonVersionConflictException;
+import be.solxa.peopleapi.model.NameNormalizer;
+import be.solxa.peopleapi.model.NamePhonetics;
 import be.solxa.peopleapi.model.Person;
+import be.solxa.peopleapi.model.UuidV7;
+import be.solxa.peopleapi.repository.NameCount;
 import be.solxa.peopleapi.repository.PersonRepository;
+import be.solxa.peopleapi.search.NameTrie;
+import be.solxa.peopleapi.search.PersonNameSuggester;
+import be.solxa.peopleapi.search.PersonTrigramIndex;
+import jakarta.persistence.EntityManager;
 import lombok.AllArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @AllArgsConstructor
 public class PersonService {
 
+    private static final int ID_LOOKUP_CHUNK = 1000;
+
     private final PersonRepository personRepository;
+    private final EntityManager entityManager;
+    private final PeopleApiProperties properties;
+    private final PersonTrigramIndex trigramIndex;
+    private final PersonNameSuggester nameSuggester;
+    private final PersonCache personCache;
+    private final SearchResultCache searchResultCache;
+    private final PersonReadCoalescer readCoalescer;
+    private final PersonGeneration generation;
+    private final PersonWriteBehind writeBehind;
+    private final ApplicationEventPublisher eventPublisher;
 
     public List<Person> search(String firstName, String lastName) {
         // If both filters are null, return all persons
+        if (!isCachedSearch(firstName, lastName)) {
+            return findAll();
+        }
+
+        return searchCached(firstName, lastName).persons();
+    }
+
+    /**
+     * Whether {@link #search} serves the filters from the search result cache, which can return a result
+     * older than {@link #listVersion()} while it refreshes it.
+     */
+    public boolean isCachedSearch(String firstName, String lastName) {
+        return firstName != null || lastName != null;
+    }
+
+    /**
+     * Like {@link #search}, along with the list version the result reflects.
+     */
+    public VersionedPersons searchVersioned(String firstName, String lastName) {
+        if (!isCachedSearch(firstName, lastName)) {
+            // Taken before reading, so a write committing meanwhile makes it outdated rather than wrong
+            String version = listVersion();
+            return new VersionedPersons(findAll(), version);
+        }
+
+        SearchResultCache.Result result = searchCached(firstName, lastName);
+        return new VersionedPersons(result.persons(), generation.tag(result.generation()));
+    }
+
+    private List<Person> findAll() {
+        return readCoalescer.list(new ListRead("all", null, null), () -> detached(personRepository.findAll()));
+    }
+
+    private SearchResultCache.Result searchCached(String firstName, String lastName) {
+        String first = NameNormalizer.normalize(firstName);
+        String last = NameNormalizer.normalize(lastName);
+        return searchResultCache.lookup(new SearchResultCache.SearchKey(first, last), () -> searchContains(first, last));
+    }
+
+    /**
+     * With open-in-view the loaded entities stay managed by the request's EntityManager; the read coalescer and
+     * the search cache hand them to other threads, so they are detached before they are published. A result is
+     * read through a single EntityManager, so either all of it is managed or none of it.
+     */
+    private List<Person> detached(List<Person> persons) {
+        if (!persons.isEmpty() && entityManager.contains(persons.getFirst())) {
+            persons.forEach(entityManager::detach);
+        }
+        return persons;
+    }
+
+    private List<Person> searchContains(String first, String last) {
+        return readCoalescer.list(new ListRead("contains", first, last), () -> detached(searchNormalized(first, last)));
+    }
+
+    private List<Person> searchNormalized(String first, String last) {
+        Optional<List<UUID>> candidates = trigramIndex.search(first, last);
+        if (candidates.isPresent()) {
+            return findMatching(candidates.get(), first, last);
+        }
+
+        return personRepository.search(first, last);
+    }
+
+    /**
+     * Persons whose names start with the given filters, answered by range scans over the search column indexes.
+     */
+    public List<Person> searchByPrefix(String firstName, String lastName) {
+        String firstFrom = emptyToNull(NameNormalizer.normalize(firstName));
+        String lastFrom = emptyToNull(NameNormalizer.normalize(lastName));
+        if (firstFrom == null && lastFrom == null) {
+            return search(null, null);
+        }
+
+        String firstTo = firstFrom == null ? null : NameNormalizer.upperBound(firstFrom);
+        String lastTo = lastFrom == null ? null : NameNormalizer.upperBound(lastFrom);
+        if ((firstFrom != null && firstTo == null) || (lastFrom != null && lastTo == null)) {
+            // Prefix without a representable upper bound, let LIKE handle it. Bypasses the search cache, whose
+            // results can be older than the list version callers took before reading.
+            return searchContains(NameNormalizer.normalize(firstName), NameNormalizer.normalize(lastName));
+        }
+
+        return readCoalescer.list(new ListRead("prefix", firstFrom, lastFrom),
+                () -> detached(searchByPrefixes(firstFrom, firstTo, lastFrom, lastTo)));
+    }
+
+    private List<Person> searchByPrefixes(String firstFrom, String firstTo, String lastFrom, String lastTo) {
+        if (firstFrom == null) {
+            return personRepository.searchByLastNamePrefix(lastFrom, lastTo);
+        }
+        if (lastFrom == null) {
+            return personRepository.searchByFirstNamePrefix(firstFrom, firstTo);
+        }
+        return personRepository.searchByNamePrefixes(firstFrom, firstTo, lastFrom, lastTo);
+    }
+
+    /**
+     * Persons whose names sound like the given filters. The last name filter, or else the first name filter,
+     * is looked up in the indexed primary and alternate code columns; the other filter is checked on the matches.
+     */
+    public List<Person> searchPhonetic(String firstName, String lastName) {
+        Set<String> firstCodes = emptyToNull(NameNormalizer.normalize(firstName)) == null ? null : NamePhonetics.codes(firstName);
+        Set<String> lastCodes = emptyToNull(NameNormalizer.normalize(lastName)) == null ? null : NamePhonetics.codes(lastName);
+        if (firstCodes == null && lastCodes == null) {
+            return search(null, null);
+        }
+        if ((firstCodes != null && firstCodes.isEmpty()) || (lastCodes != null && lastCodes.isEmpty())) {
+            // Nothing in the filter has a sound, so nothing can sound like it
+            return List.of();
+        }
+
+        ListRead read = new ListRead("phonetic", NameNormalizer.normalize(firstName), NameNormalizer.normalize(lastName));
+        return readCoalescer.list(read, () -> detached(searchPhoneticCodes(firstCodes, lastCodes)));
+    }
+
+    // The codes only depend on the normalized names, which is what identical searches are recognized by
+    private List<Person> searchPhoneticCodes(Set<String> firstCodes, Set<String> lastCodes) {
+        Map<UUID, Person> matches = new LinkedHashMap<>();
+        if (lastCodes != null) {
+            addPhoneticMatches(matches, personRepository.searchByLastNamePhonetic(lastCodes), firstCodes);
+            addPhoneticMatches(matches, personRepository.searchByLastNamePhoneticAlt(lastCodes), firstCodes);
+        } else {
+            addPhoneticMatches(matches, personRepository.searchByFirstNamePhonetic(firstCodes), null);
+            addPhoneticMatches(matches, personRepository.searchByFirstNamePhoneticAlt(firstCodes), null);
+        }
+        return new ArrayList<>(matches.values());
+    }
+
+    private static void addPhoneticMatches(Map<UUID, Person> matches, List<Person> candidates, Set<String> firstCodes) {
+        for (Person person : candidates) {
+            if (firstCodes == null
+                    || NamePhonetics.matches(firstCodes, person.getFirstNamePhonetic(), person.getFirstNamePhoneticAlt())) {
+                matches.putIfAbsent(person.getId(), person);
+            }
+        }
+    }
+
+    /**
+     * Like {@link #search} and {@link #searchByPrefix}, but selects only the requested fields straight into DTOs
+     * in a read-only transaction: no entities are loaded, tracked or mapped, and the caches are not involved.
+     * Phonetic searches are the exception, they load the matches and only trim the returned fields.
+     */
+    @Transactional(readOnly = true)
+    public List<PersonDTO> searchProjected(String firstName, String lastName, SearchMode mode, Set<PersonField> fields) {
+        if (mode == SearchMode.PHONETIC) {
+            // The code lookups and the first name check need the entities; only the response is trimmed
+            return searchPhonetic(firstName, lastName).stream()
+                    .map(person -> project(person, fields))
+                    .toList();
+        }
+
+        String first = emptyToNull(NameNormalizer.normalize(firstName));
+        String last = emptyToNull(NameNormalizer.normalize(lastName));
+        if (mode == SearchMode.PREFIX) {
+            String firstTo = first == null ? null : NameNormalizer.upperBound(first);
+            String lastTo = last == null ? null : NameNormalizer.upperBound(last);
+            if ((first == null || firstTo != null) && (last == null || lastTo != null)) {
+                return personRepository.searchProjectedByPrefix(fields, first, firstTo, last, lastTo);
+            }
+            // Prefix without a representable upper bound, let LIKE handle it
+        }
+
+        return personRepository.searchProjected(fields, first, last);
+    }
+
+    /**
+     * The most common values of a name field starting with the prefix, most common first. Served from the
+     * in-memory tries once built, otherwise by grouping the rows in the prefix range of the search column index.
+     */
+    public List<NameTrie.Suggestion> suggest(PersonField field, String prefix, int limit) {
+        Optional<List<NameTrie.Suggestion>> fromTrie = nameSuggester.suggest(field, prefix, limit);
+        if (fromTrie.isPresent()) {
+            return fromTrie.get();
+        }
+
+        String from = NameNormalizer.normalize(prefix == null ? "" : prefix);
+        String to = from.isEmpty() ? null : NameNormalizer.upperBound(from);
+        if (to == null) {
+            // No prefix (or one without a representable bound): every name qualifies
+            to = String.valueOf(Character.MAX_VALUE);
+        }
+        PageRequest page = PageRequest.ofSize(limit);
+        return toSuggestions(field == PersonField.FIRST_NAME
+                ? personRepository.countFirstNamesByPrefix(from, to, page)
+                : personRepository.countLastNamesByPrefix(from, to, page));
+    }
+
+    private static List<NameTrie.Suggestion> toSuggestions(List<NameCount> counts) {
+        return counts.stream()
+                .map(count -> new NameTrie.Suggestion(count.getName().trim(), (int) count.getOccurrences()))
+                .toList();
+    }
+
+    /**
+     * Number of persons {@link #search} would return, counted by the database.
+     */
+    public long count(String firstName, String lastName) {
         if (firstName == null && lastName == null) {
-            return personRepository.findAll();
+            return personRepository.count();
+        }
+        return personRepository.countMatching(NameNormalizer.normalize(firstName), NameNormalizer.normalize(lastName));
+    }
+
+    /**
+     * The most common values of a name field among the persons {@link #search} would return, most common first.
+     * Without filters they come from the suggestion tries, which keep a count per name up to date; otherwise,
+     * or until the tries are built, the database groups the matching rows.
+     */
+    public List<NameTrie.Suggestion> facets(PersonField field, String firstName, String lastName, int top) {
+        if (firstName == null && lastName == null) {
+            Optional<List<NameTrie.Suggestion>> counted = nameSuggester.suggest(field, "", top);
+            if (counted.isPresent()) {
+                return counted.get();
+            }
+        }
+
+        String first = NameNormalizer.normalize(firstName);
+        String last = NameNormalizer.normalize(lastName);
+        PageRequest page = PageRequest.ofSize(top);
+        return toSuggestions(field == PersonField.FIRST_NAME
+                ? personRepository.facetFirstNames(first, last, page)
+                : personRepository.facetLastNames(first, last, page));
+    }
+
+    /**
+     * Changes whenever a write to the person table commits; list responses read from the table use it as their
+     * weak ETag. Cached searches carry their own, see {@link #searchVersioned}.
+     */
+    public String listVersion() {
+        return generation.tag();
+    }
+
+    public Slice<Person> searchPage(String firstName, String lastName, PersonCursor after, int limit) {
+        PageRequest page = PageRequest.ofSize(limit);
+        firstName = NameNormalizer.normalize(firstName);
+        lastName = NameNormalizer.normalize(lastName);
+        if (after == null) {
+            return personRepository.searchFirstPage(firstName, lastName, page);
         }
 
-        return personRepository.search(firstName, lastName);
+        return personRepository.searchPageAfter(firstName, lastName,
+                after.getLastName(), after.getFirstName(), after.getId(), page);
+    }
+
+    /**
+     * Hands every person to the consumer one at a time, detaching each once consumed so the
+     * persistence context stays empty no matter how large the table is.
+     */
+    @Transactional(readOnly = true)
+    public void exportPersons(Consumer<Person> consumer) {
+        try (Stream<Person> persons = personRepository.streamAll()) {
+            persons.forEach(person -> {
+                consumer.accept(person);
+                entityManager.detach(person);
+            });
+        }
     }
 
     public Optional<Person> getPersonById(UUID id) {
-        return personRepository.findById(id);
+        // Accepted by the write-behind queue but not written yet
+        Optional<Person> queued = writeBehind.pending(id);
+        if (queued.isPresent()) {
+            return queued;
+        }
+        return personCache.get(id, key -> readCoalescer.byId(key, () -> findDetached(key)));
+    }
+
+    /**
+     * With open-in-view the loaded entity stays managed by the request's EntityManager; the cache and the
+     * read coalescer hand it to other threads, so it is detached before it is published.
+     */
+    private Optional<Person> findDetached(UUID id) {
+        Optional<Person> person = personRepository.findById(id);
+        person.ifPresent(entityManager::detach);
+        return person;
     }
 
     public Person createPerson(Person person) {
         validatePerson(person);
-        return personRepository.save(person);
+        // Ids are always generated, the generator would keep one supplied by the client
+        person.setId(null);
+        Person created = personRepository.save(person);
+        eventPublisher.publishEvent(PersonChangedEvent.created(created));
+        return created;
+    }
+
+    public boolean isWriteBehindEnabled() {
+        return writeBehind.isEnabled();
+    }
+
+    /**
+     * Validates the person, gives it its id and hands it to the write-behind queue, which inserts it shortly
+     * after. The person can be read by id right away. Throws WriteQueueFullException when the queue stays full.
+     */
+    public Person acceptPerson(Person person) {
+        validatePerson(person);
+        person.setId(UuidV7.next());
+        writeBehind.enqueue(person);
+        return person;
     }
 
+    /**
+     * Validates every person first, then inserts the valid ones in chunks so Hibernate can send them
+     * as JDBC batches. Ids are assigned in-process by the UUID generator, so nothing waits on the database
+     * for keys. Results are returned in input order.
+     */
+    @Transactional
+    public List<PersonBatchResult> createPersons(List<Person> persons) {
+        List<PersonBatchResult> results = new ArrayList<>(persons.size());
+        List<Person> valid = new ArrayList<>(persons.size());
+        for (int i = 0; i < persons.size(); i++) {
+            Person person = persons.get(i);
+            try {
+                validatePerson(person);
+                // Bulk create always inserts; a client supplied id would turn the insert into a merge
+                person.setId(null);
+                valid.add(person);
+                results.add(new PersonBatchResult(i, person, null));
+            } catch (PersonValidationException e) {
+                results.add(new PersonBatchResult(i, null, e.getMessage()));
+            }
+        }
+
+        int chunkSize = properties.getBatch().getChunkSize();
+        for (int from = 0; from < valid.size(); from += chunkSize) {
+            personRepository.saveAll(valid.subList(from, Math.min(from + chunkSize, valid.size())));
+            personRepository.flush();
+            entityManager.clear();
+        }
+        valid.forEach(person -> eventPublisher.publishEvent(PersonChangedEvent.created(person)));
+
+        return results;
+    }
+
+    @Transactional
     public Optional<Person> updatePerson(UUID id, Person personDetails) {
+        return updatePerson(id, personDetails, null);
+    }
+
+    /**
+     * Updates the person in a single statement, only if it is still at the expected version when one is given.
+     * Returns empty if the person doesn't exist and throws PersonVersionConflictException if it was changed since,
+     * or PersonNotWrittenException while it is still on the write-behind queue.
+     */
+    @Transactional
+    public Optional<Person> updatePerson(UUID id, Person personDetails, Long expectedVersion) {
         validatePerson(personDetails);
+        rejectIfQueued(id);
+
+        // The bulk update bypasses entity callbacks, so derive the search columns here
+        personDetails.normalizeSearchColumns();
+        int updated = expectedVersion == null
+                ? personRepository.updateById(id, personDetails)
+                : personRepository.updateByIdAndVersion(id, expectedVersion, personDetails);
+        if (updated == 0) {
+            // Only a failed conditional update needs a second look to tell a conflict from a missing person
+            if (expectedVersion != null && personRepository.existsById(id)) {
+                throw new PersonVersionConflictException("Person " + id + " is no longer at version " + expectedVersion);
+            }
+            return Optional.empty();
+        }
 
-        return personRepository.findById(id)
-                .map(existingPerson -> {
-                    existingPerson.setFirstName(personDetails.getFirstName());
-                    existingPerson.setLastName(personDetails.getLastName());
-                    return personRepository.save(existingPerson);
-                });
+        // The row now holds exactly these values, no need to read it back. The new version is only
+        // known when the update was conditional; listeners apply unversioned changes as they come.
+        personDetails.setId(id);
+        personDetails.setVersion(expectedVersion == null ? null : expectedVersion + 1);
+        eventPublisher.publishEvent(PersonChangedEvent.updated(personDetails));
+        return Optional.of(personDetails);
     }
 
+    @Transactional
     public boolean deletePerson(UUID id) {
-        return personRepository.findById(id)
-                .map(person -> {
-                    personRepository.delete(person);
-                    return true;
-                })
-                .orElse(false);
+        rejectIfQueued(id);
+        if (personRepository.removeById(id) == 0) {
+            return false;
+        }
+
+        eventPublisher.publishEvent(PersonChangedEvent.deleted(id));
+        return true;
+    }
+
+    // Without a row to change the update or delete would miss it, and the queued insert would undo a delete
+    private void rejectIfQueued(UUID id) {
+        if (writeBehind.pending(id).isPresent()) {
+            throw new PersonNotWrittenException("Person " + id + " is accepted but not written yet, retry shortly");
+        }
+    }
+
+    // Loads the index candidates and re-checks them, the index may briefly lag behind the table
+    private List<Person> findMatching(List<UUID> ids, String firstName, String lastName) {
+        List<Person> matches = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += ID_LOOKUP_CHUNK) {
+            for (Person person : personRepository.findAllById(ids.subList(from, Math.min(from + ID_LOOKUP_CHUNK, ids.size())))) {
+                if (contains(person.getFirstNameSearch(), firstName) && contains(person.getLastNameSearch(), lastName)) {
+                    matches.add(person);
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static PersonDTO project(Person person, Set<PersonField> fields) {
+        return new PersonDTO(
+                fields.contains(PersonField.ID) ? person.getId() : null,
+                fields.contains(PersonField.FIRST_NAME) ? person.getFirstName() : null,
+                fields.contains(PersonField.LAST_NAME) ? person.getLastName() : null);
+    }
+
+    private static boolean contains(String value, String filter) {
+        return filter == null || (value != null && value.contains(filter));
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
     }
 
     private void validatePerson(Person person) {
+        // A null item in a bulk create body
+        if (person == null) {
+            throw new PersonValidationException("Person cannot be empty");
+        }
+
         if (person.getFirstName() == null || person.getFirstName().trim().isEmpty()) {
             throw new PersonValidationException("First name cannot be empty");
         }
@@ -0,0 +1,303 @@
+package be.solxa.peopleapi.service;
+
+import be.solxa.peopleapi.PeopleApiProperties;
+import be.solxa.peopleapi.event.PersonChangedEvent;
+import be.solxa.peopleapi.exception.WriteQueueFullException;
+import be.solxa.peopleapi.model.Person;
+import be.solxa.peopleapi.repository.PersonRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind for person creation when {@code people.write-behind.enabled} is set: accepted persons go on a
+ * bounded queue and a single writer thread inserts them in group commits of up to {@code batch-size} persons,
+ * or whatever arrived within {@code max-delay} of the first, so a burst of creates shares a few commits.
+ * <p>
+ * Persons are readable by id as soon as they are accepted. Searches only see them once their group committed;
+ * updates and deletes of a person that is still queued are refused, as they would find no row and the insert
+ * would undo them. A person that still can't be written on its own after its group failed is kept as a dead
+ * letter, counted and logged, for an operator to list, retry or discard through {@code /api/admin/write-behind}.
+ * Dead letters only live in memory: up to {@code dead-letter-capacity} of them, the oldest dropped beyond that,
+ * and the ones left at shutdown are logged in full.
+ * <p>
+ * On shutdown the queue is closed and drained before the database goes away; the web server stops in an earlier
+ * phase, so no creates arrive meanwhile.
+ */
+@Slf4j
+@Component
+public class PersonWriteBehind implements SmartLifecycle, MeterBinder {
+
+    // Below the web server's phases, so it is stopped after the server stopped taking requests
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+    private static final long SHUTDOWN_TIMEOUT_MS = 30_000;
+
+    private final PersonRepository personRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PeopleApiProperties.WriteBehind config;
+
+    private final BlockingQueue<Person> queue;
+    // Accepted persons until their insert committed, for read-your-writes by id
+    private final ConcurrentHashMap<UUID, Person> pending = new ConcurrentHashMap<>();
+    // Accepted persons whose insert failed, with the reason
+    private final BlockingQueue<DeadLetter> deadLetters;
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public record DeadLetter(Person person, String error) {
+    }
+
+    public record RetryResult(int written, int failed) {
+    }
+
+    private volatile boolean accepting;
+    private Thread writer;
+
+    public PersonWriteBehind(PersonRepository personRepository, PlatformTransactionManager transactionManager,
+                             ApplicationEventPublisher eventPublisher, PeopleApiProperties properties) {
+        this.personRepository = personRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.config = properties.getWriteBehind();
+        this.queue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+        this.deadLetters = new ArrayBlockingQueue<>(config.getDeadLetterCapacity());
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * Queues a validated person that already has its id. Waits up to {@code offer-timeout} for room and
+     * throws WriteQueueFullException if there is none, or if the application is shutting down.
+     */
+    public void enqueue(Person person) {
+        if (!accepting) {
+            throw new WriteQueueFullException("Not accepting writes");
+        }
+
+        // The writer gets its own copy: Hibernate sets fields on what it persists while readers see the accepted one
+        pending.put(person.getId(), person);
+        boolean queued;
+        try {
+            queued = queue.offer(copy(person), config.getOfferTimeout().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        if (!queued) {
+            pending.remove(person.getId());
+            throw new WriteQueueFullException("Write queue is full, retry later");
+        }
+    }
+
+    public Optional<Person> pending(UUID id) {
+        return Optional.ofNullable(pending.get(id));
+    }
+
+    public int queued() {
+        return queue.size();
+    }
+
+    /**
+     * The accepted persons that could not be written, oldest first.
+     */
+    public List<DeadLetter> deadLetters() {
+        return List.copyOf(deadLetters);
+    }
+
+    /**
+     * Tries to write every dead letter again, one at a time on the calling thread. The ones that still fail are
+     * kept, with their new error.
+     */
+    public RetryResult retryDeadLetters() {
+        int written = 0;
+        List<DeadLetter> retried = new ArrayList<>();
+        deadLetters.drainTo(retried);
+        for (DeadLetter deadLetter : retried) {
+            try {
+                insert(List.of(deadLetter.person()));
+                written++;
+            } catch (RuntimeException e) {
+                log.warn("Dead letter {} still could not be written", deadLetter.person().getId(), e);
+                keep(new DeadLetter(deadLetter.person(), String.valueOf(e.getMessage())));
+            }
+        }
+        return new RetryResult(written, retried.size() - written);
+    }
+
+    /**
+     * Forgets the dead letter of the person, once it was recovered some other way. False if there is none.
+     */
+    public boolean discardDeadLetter(UUID id) {
+        return deadLetters.removeIf(deadLetter -> deadLetter.person().getId().equals(id));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("people.write.behind.queued", queue, BlockingQueue::size)
+                .description("Accepted persons waiting to be written")
+                .register(registry);
+        Gauge.builder("people.write.behind.dead.letters", deadLetters, BlockingQueue::size)
+                .description("Accepted persons that could not be written and are kept for recovery")
+                .register(registry);
+        FunctionCounter.builder("people.write.behind.dead.letters.dropped", dropped, LongAdder::sum)
+                .description("Dead letters dropped to make room for newer ones")
+                .register(registry);
+        FunctionCounter.builder("people.write.behind.failed", failed, LongAdder::sum)
+                .description("Accepted persons whose insert failed")
+                .register(registry);
+    }
+
+    @Override
+    public void start() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        accepting = true;
+        writer = new Thread(this::drain, "person-write-behind");
+        writer.start();
+    }
+
+    @Override
+    public void stop() {
+        if (writer == null) {
+            return;
+        }
+        accepting = false;
+        try {
+            writer.join(SHUTDOWN_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            log.error("Write-behind did not drain within {} ms, {} persons not written", SHUTDOWN_TIMEOUT_MS, queue.size());
+        }
+        // Nothing else holds them, the log is all that is left to recover them from
+        for (DeadLetter deadLetter : deadLetters) {
+            log.error("Dead letter lost on shutdown: {} {} {} ({})", deadLetter.person().getId(),
+                    deadLetter.person().getFirstName(), deadLetter.person().getLastName(), deadLetter.error());
+        }
+        writer = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return writer != null;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private void drain() {
+        List<Person> group = new ArrayList<>(config.getBatchSize());
+        // Once closed, keep going until everything accepted before was written
+        while (accepting || !queue.isEmpty()) {
+            try {
+                collect(group);
+            } catch (InterruptedException e) {
+                // Treated as shutdown: stop accepting, write what was collected and drain the rest
+                accepting = false;
+            }
+            if (!group.isEmpty()) {
+                write(group);
+                group.clear();
+            }
+        }
+    }
+
+    // Waits for a first person, then for more until the group is full or max-delay passed
+    private void collect(List<Person> group) throws InterruptedException {
+        Person first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        group.add(first);
+
+        long deadline = System.nanoTime() + config.getMaxDelay().toNanos();
+        while (group.size() < config.getBatchSize()) {
+            queue.drainTo(group, config.getBatchSize() - group.size());
+            long remaining = deadline - System.nanoTime();
+            if (group.size() >= config.getBatchSize() || remaining <= 0 || !accepting) {
+                return;
+            }
+            Person next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            group.add(next);
+        }
+    }
+
+    private void write(List<Person> group) {
+        try {
+            insert(group);
+        } catch (RuntimeException e) {
+            // One bad row fails the whole group; write the others on their own
+            log.warn("Group commit of {} persons failed, writing them one at a time", group.size(), e);
+            for (Person person : group) {
+                try {
+                    insert(List.of(person));
+                } catch (RuntimeException single) {
+                    log.error("Accepted person {} could not be written, keeping it as a dead letter", person.getId(), single);
+                    keep(new DeadLetter(person, String.valueOf(single.getMessage())));
+                    failed.increment();
+                }
+            }
+        } finally {
+            for (Person person : group) {
+                pending.remove(person.getId());
+            }
+        }
+    }
+
+    private void keep(DeadLetter deadLetter) {
+        while (!deadLetters.offer(deadLetter)) {
+            DeadLetter oldest = deadLetters.poll();
+            if (oldest != null) {
+                dropped.increment();
+                log.error("Dead letter dropped, {} are kept at most: {} {} {} ({})", config.getDeadLetterCapacity(),
+                        oldest.person().getId(), oldest.person().getFirstName(), oldest.person().getLastName(),
+                        oldest.error());
+            }
+        }
+    }
+
+    private void insert(List<Person> persons) {
+        // A rolled back attempt leaves the version set, which would turn the retry into a merge
+        persons.forEach(person -> person.setVersion(null));
+        transactionTemplate.executeWithoutResult(status -> {
+            personRepository.saveAll(persons);
+            personRepository.flush();
+            persons.forEach(person -> eventPublisher.publishEvent(PersonChangedEvent.created(person)));
+        });
+    }
+
+    private static Person copy(Person person) {
+        Person copy = new Person();
+        copy.setId(person.getId());
+        copy.setFirstName(person.getFirstName());
+        copy.setLastName(person.getLastName());
+        return copy;
+    }
+}
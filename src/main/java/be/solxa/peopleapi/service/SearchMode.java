@@ -0,0 +1,25 @@
+package be.solxa.peopleapi.service;
+
+import be.solxa.peopleapi.exception.InvalidSearchModeException;
+
+import java.util.Locale;
+
+/**
+ * How name filters are matched against stored names.
+ */
+public enum SearchMode {
+    // Name contains the filter anywhere; needs a scan of the search columns
+    CONTAINS,
+    // Name starts with the filter; answered from the search column indexes
+    PREFIX,
+    // Name sounds like the filter (Double Metaphone); answered from the phonetic column indexes
+    PHONETIC;
+
+    public static SearchMode fromParameter(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidSearchModeException("Unknown match mode: " + value);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package be.solxa.peopleapi.service;
+
+import be.solxa.peopleapi.model.Person;
+
+import java.util.List;
+
+/**
+ * A list of persons and the list version it reflects, for use as its weak ETag.
+ */
+public record VersionedPersons(List<Person> persons, String version) {
+}
@@ -0,0 +1,124 @@
+package be.solxa.peopleapi.snapshot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.UUID;
+
+/**
+ * Binary snapshot of the person table: only the columns that can't be derived (id, names, version), written
+ * as fixed-width ids and modified UTF-8 names behind a magic number and format version. Each row is preceded
+ * by a marker byte and the file ends with the row count, so a truncated file is detected rather than half
+ * loaded.
+ */
+public final class PersonSnapshot {
+
+    static final int MAGIC = 0x50455253; // "PERS"
+    static final int FORMAT_VERSION = 1;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final byte ROW = 1;
+    private static final byte END = 0;
+    private static final long NO_VERSION = -1;
+
+    public record Row(UUID id, String firstName, String lastName, Long version) {
+    }
+
+    private PersonSnapshot() {
+    }
+
+    public static Writer writer(OutputStream out) throws IOException {
+        return new Writer(out);
+    }
+
+    public static Reader reader(InputStream in) throws IOException {
+        return new Reader(in);
+    }
+
+    public static final class Writer implements Closeable {
+        private final DataOutputStream out;
+        private long rows;
+
+        private Writer(OutputStream out) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+            this.out.writeInt(MAGIC);
+            this.out.writeInt(FORMAT_VERSION);
+        }
+
+        public void write(Row row) throws IOException {
+            out.writeByte(ROW);
+            out.writeLong(row.id().getMostSignificantBits());
+            out.writeLong(row.id().getLeastSignificantBits());
+            out.writeUTF(row.firstName());
+            out.writeUTF(row.lastName());
+            out.writeLong(row.version() == null ? NO_VERSION : row.version());
+            rows++;
+        }
+
+        public long rows() {
+            return rows;
+        }
+
+        /**
+         * Writes the end marker and row count, then closes the stream.
+         */
+        @Override
+        public void close() throws IOException {
+            try (out) {
+                out.writeByte(END);
+                out.writeLong(rows);
+            }
+        }
+    }
+
+    public static final class Reader implements Closeable {
+        private final DataInputStream in;
+        private long rows;
+
+        private Reader(InputStream in) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+            int magic = this.in.readInt();
+            if (magic != MAGIC) {
+                throw new IOException("Not a person snapshot");
+            }
+            int version = this.in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported person snapshot format " + version);
+            }
+        }
+
+        /**
+         * The next row, or null after the last one once the row count was checked.
+         */
+        public Row next() throws IOException {
+            byte marker = in.readByte();
+            if (marker == END) {
+                long expected = in.readLong();
+                if (expected != rows) {
+                    throw new IOException("Person snapshot holds " + rows + " rows but announces " + expected);
+                }
+                return null;
+            }
+            if (marker != ROW) {
+                throw new IOException("Corrupt person snapshot after " + rows + " rows");
+            }
+
+            UUID id = new UUID(in.readLong(), in.readLong());
+            String firstName = in.readUTF();
+            String lastName = in.readUTF();
+            long version = in.readLong();
+            rows++;
+            return new Row(id, firstName, lastName, version == NO_VERSION ? null : version);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
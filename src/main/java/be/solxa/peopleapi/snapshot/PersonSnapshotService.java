@@ -0,0 +1,191 @@
+package be.solxa.peopleapi.snapshot;
+
+import be.solxa.peopleapi.PeopleApiProperties;
+import be.solxa.peopleapi.model.Person;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Writes the person table to a {@link PersonSnapshot} file and bulk-loads it back, with
+ * {@code people.snapshot.restore-on-startup}, into an empty table before the web server starts.
+ * Loading skips JPA altogether: the derived search and phonetic columns are computed here and the rows are
+ * inserted with JDBC batches in a single transaction.
+ * <p>
+ * Restored rows don't go through PersonService, so no change events are published and the list generation
+ * doesn't move. That is why the restore runs once the singletons are created but before lifecycle beans start:
+ * no request can read, cache or tag the table half restored. The in-memory indexes are built from the table
+ * afterwards, once the application is ready.
+ */
+@Slf4j
+@Component
+public class PersonSnapshotService implements SmartInitializingSingleton {
+
+    private static final String INSERT = "INSERT INTO person (id, first_name, last_name, first_name_search, " +
+            "last_name_search, first_name_phonetic, first_name_phonetic_alt, last_name_phonetic, " +
+            "last_name_phonetic_alt, version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SELECT = "SELECT id, first_name, last_name, version FROM person";
+
+    public record Result(long persons, long bytes, long millis) {
+        public double personsPerSecond() {
+            return millis == 0 ? persons * 1000.0 : persons * 1000.0 / millis;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final PeopleApiProperties.Snapshot config;
+
+    public PersonSnapshotService(DataSource dataSource, PlatformTransactionManager transactionManager,
+                                 PeopleApiProperties properties) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(properties.getSnapshot().getBatchSize());
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.config = properties.getSnapshot();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        Path path = Path.of(config.getPath());
+        if (!config.isRestoreOnStartup() || !Files.exists(path)) {
+            return;
+        }
+        Long existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM person", Long.class);
+        if (existing != null && existing > 0) {
+            log.info("Person table already holds {} rows, not restoring snapshot {}", existing, path);
+            return;
+        }
+
+        Result result = restore(path);
+        log.info("Restored {} persons from snapshot {} ({} MB) in {} ms, {} persons/s",
+                result.persons(), path, result.bytes() >> 20, result.millis(), Math.round(result.personsPerSecond()));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        Long persons = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM person", Long.class);
+        log.info("Ready with {} persons, {} ms after JVM start", persons, ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+
+    // Lifecycle beans, the write-behind queue among them, have stopped and drained by now
+    @PreDestroy
+    public void onShutdown() {
+        if (config.isWriteOnShutdown()) {
+            write();
+        }
+    }
+
+    /**
+     * Writes every person to the configured snapshot file. The file is written next to it first and moved in
+     * place once complete, so an interrupted write never replaces a good snapshot.
+     */
+    public Result write() {
+        return write(Path.of(config.getPath()));
+    }
+
+    public Result write(Path path) {
+        long start = System.nanoTime();
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path partial = Files.createTempFile(parent, path.getFileName().toString(), ".partial");
+            long rows;
+            try (OutputStream out = Files.newOutputStream(partial);
+                 PersonSnapshot.Writer writer = PersonSnapshot.writer(out)) {
+                // A read-only transaction so the whole snapshot sees one state of the table
+                readOnlyTransactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(SELECT, resultSet -> {
+                    try {
+                        writer.write(new PersonSnapshot.Row(
+                                resultSet.getObject("id", UUID.class),
+                                resultSet.getString("first_name"),
+                                resultSet.getString("last_name"),
+                                resultSet.getObject("version", Long.class)));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+                rows = writer.rows();
+            }
+            Files.move(partial, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            Result result = new Result(rows, Files.size(path), elapsedMillis(start));
+            log.info("Wrote {} persons to snapshot {} ({} MB) in {} ms",
+                    rows, path, result.bytes() >> 20, result.millis());
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write person snapshot " + path, e);
+        }
+    }
+
+    /**
+     * Inserts every person of the snapshot in one transaction, in JDBC batches of {@code batch-size} rows.
+     */
+    public Result restore(Path path) {
+        long start = System.nanoTime();
+        Long persons = transactionTemplate.execute(status -> {
+            try (InputStream in = Files.newInputStream(path);
+                 PersonSnapshot.Reader reader = PersonSnapshot.reader(in)) {
+                long loaded = 0;
+                List<Object[]> batch = new ArrayList<>(config.getBatchSize());
+                for (PersonSnapshot.Row row = reader.next(); row != null; row = reader.next()) {
+                    batch.add(toParameters(row));
+                    if (batch.size() == config.getBatchSize()) {
+                        jdbcTemplate.batchUpdate(INSERT, batch);
+                        loaded += batch.size();
+                        batch.clear();
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    jdbcTemplate.batchUpdate(INSERT, batch);
+                    loaded += batch.size();
+                }
+                return loaded;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not restore person snapshot " + path, e);
+            }
+        });
+        try {
+            return new Result(persons == null ? 0 : persons, Files.size(path), elapsedMillis(start));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Object[] toParameters(PersonSnapshot.Row row) {
+        Person person = new Person();
+        person.setFirstName(row.firstName());
+        person.setLastName(row.lastName());
+        person.normalizeSearchColumns();
+        return new Object[]{row.id(), row.firstName(), row.lastName(),
+                person.getFirstNameSearch(), person.getLastNameSearch(),
+                person.getFirstNamePhonetic(), person.getFirstNamePhoneticAlt(),
+                person.getLastNamePhonetic(), person.getLastNamePhoneticAlt(),
+                row.version() == null ? 0L : row.version()};
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
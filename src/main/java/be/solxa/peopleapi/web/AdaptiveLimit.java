@@ -0,0 +1,79 @@
+package be.solxa.peopleapi.web;
+
+import java.time.Duration;
+
+/**
+ * A concurrency limit that adapts to the latency it observes, additive increase, multiplicative decrease (AIMD):
+ * every request completing within the latency threshold while the limit was at least half used raises the limit
+ * by 1/limit, about one per limit's worth of requests; every request slower than the threshold, or failing,
+ * multiplies it by the backoff ratio. The limit stays between its minimum and maximum.
+ * <p>
+ * Acquiring never waits: a request over the limit is refused at once, so excess load is shed instead of queued.
+ */
+public class AdaptiveLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+
+    private double limit;
+    private int inFlight;
+
+    public AdaptiveLimit(int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold, double backoffRatio) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Expected 1 <= minLimit <= initialLimit <= maxLimit, got "
+                    + minLimit + ", " + initialLimit + ", " + maxLimit);
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("The backoff ratio must be between 0 and 1, got " + backoffRatio);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.backoffRatio = backoffRatio;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * Takes a slot if fewer requests than the current limit are in flight. Every successful call must be
+     * followed by one {@link #release(long, boolean)} or {@link #release()}.
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Frees the slot and adapts the limit to how the request went.
+     */
+    public synchronized void release(long latencyNanos, boolean failed) {
+        // Whether the limit was what held the load back, counting the request that completes
+        boolean saturated = inFlight * 2 >= limit;
+        inFlight--;
+        if (failed || latencyNanos > latencyThresholdNanos) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else if (saturated) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    /**
+     * Frees the slot without adapting the limit, for requests whose duration says nothing about the load, like
+     * a long streamed export.
+     */
+    public synchronized void release() {
+        inFlight--;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,128 @@
+package be.solxa.peopleapi.web;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admits /api/persons requests against an {@link AdaptiveLimit} per compartment, so a burst of slow searches
+ * (an unfiltered list reads the whole table) can't take the connections that point lookups and writes need.
+ * A request over its compartment's limit gets 503 with Retry-After at once instead of queueing.
+ * <p>
+ * Latency is measured from admission until the response completes; the export, which is streamed
+ * asynchronously and runs as long as the table is big, frees its slot without adapting the limit.
+ * Responses with a 5xx status count as slow.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    public enum Compartment {
+        // List, count, facet, suggestion and export reads
+        SEARCH,
+        // Reads of a single person by id
+        LOOKUP,
+        // Creates, updates and deletes
+        WRITE
+    }
+
+    private static final String PERSONS = "/api/persons";
+    private static final String EXPORT = "/export";
+    private static final Set<String> COLLECTION_READS = Set.of("", "/count", "/facets", "/suggest", EXPORT);
+
+    private final Map<Compartment, AdaptiveLimit> limits;
+    private final Map<Compartment, Counter> rejections = new EnumMap<>(Compartment.class);
+
+    public AdmissionControlFilter(Map<Compartment, AdaptiveLimit> limits, MeterRegistry registry) {
+        this.limits = new EnumMap<>(limits);
+        for (Compartment compartment : Compartment.values()) {
+            AdaptiveLimit limit = this.limits.get(compartment);
+            if (limit == null) {
+                throw new IllegalArgumentException("No limit for " + compartment);
+            }
+            String tag = compartment.name().toLowerCase(Locale.ROOT);
+            Gauge.builder("people.admission.limit", limit, AdaptiveLimit::getLimit)
+                    .description("Current concurrency limit")
+                    .tag("compartment", tag)
+                    .register(registry);
+            Gauge.builder("people.admission.in.flight", limit, AdaptiveLimit::getInFlight)
+                    .description("Requests admitted and not completed yet")
+                    .tag("compartment", tag)
+                    .register(registry);
+            rejections.put(compartment, Counter.builder("people.admission.rejected")
+                    .description("Requests turned away with 503 over the limit")
+                    .tag("compartment", tag)
+                    .register(registry));
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        Compartment compartment = classify(request.getMethod(), path);
+        AdaptiveLimit limit = limits.get(compartment);
+        if (!limit.tryAcquire()) {
+            rejections.get(compartment).increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Too many concurrent " +
+                    compartment.name().toLowerCase(Locale.ROOT) + " requests");
+            return;
+        }
+
+        boolean sampled = !path.equals(PERSONS + EXPORT);
+        long start = System.nanoTime();
+        AtomicBoolean failed = new AtomicBoolean();
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                if (sampled) {
+                    limit.release(System.nanoTime() - start, failed.get() || response.getStatus() >= 500);
+                } else {
+                    limit.release();
+                }
+            }
+        };
+        try {
+            chain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            // Turned into an error response further out, after this filter has released
+            failed.set(true);
+            throw e;
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleasingListener(release));
+            } else {
+                release.run();
+            }
+        }
+    }
+
+    static Compartment classify(String method, String path) {
+        if (!HttpMethod.GET.matches(method) && !HttpMethod.HEAD.matches(method)) {
+            return Compartment.WRITE;
+        }
+        String rest = path.startsWith(PERSONS) ? path.substring(PERSONS.length()) : path;
+        if (rest.endsWith("/") && !rest.isEmpty()) {
+            rest = rest.substring(0, rest.length() - 1);
+        }
+        return COLLECTION_READS.contains(rest) ? Compartment.SEARCH : Compartment.LOOKUP;
+    }
+
+    int limit(Compartment compartment) {
+        return limits.get(compartment).getLimit();
+    }
+}
@@ -0,0 +1,33 @@
+package be.solxa.peopleapi.web;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+
+/**
+ * Runs the release once an asynchronous request completes, times out or fails, so a request that goes async
+ * (like the streamed export and list responses) keeps its slot until the response is done. The release must
+ * tolerate being run more than once.
+ */
+record ReleasingListener(Runnable release) implements AsyncListener {
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        release.run();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        release.run();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        release.run();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+        // Re-dispatches keep the slot, the listener is registered again by the new async cycle
+        event.getAsyncContext().addListener(this);
+    }
+}
@@ -0,0 +1,36 @@
+package be.solxa.peopleapi;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Configuration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PeopleApiPropertiesTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(ValidationAutoConfiguration.class))
+            .withUserConfiguration(PropertiesConfiguration.class);
+
+    @Test
+    public void testDefaultsAreValid() {
+        contextRunner.run(context -> {
+            assertNull(context.getStartupFailure());
+            assertEquals(1000, context.getBean(PeopleApiProperties.class).getBatch().getChunkSize());
+        });
+    }
+
+    @Test
+    public void testChunkSizeBelowOneFailsStartup() {
+        contextRunner.withPropertyValues("people.batch.chunk-size=0")
+                .run(context -> assertNotNull(context.getStartupFailure()));
+    }
+
+    @Configuration
+    @EnableConfigurationProperties(PeopleApiProperties.class)
+    static class PropertiesConfiguration {
+    }
+}
@@ -0,0 +1,103 @@
+package be.solxa.peopleapi.benchmark;
+
+import be.solxa.peopleapi.model.UuidV7;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Inserts the same rows into a file-backed H2 person table keyed by random (v4) and by time-ordered (v7)
+ * UUIDs, and prints the insert rate for every million rows so the slowdown of scattered inserts into a
+ * growing primary key index shows, plus the final database size.
+ * Not part of the regular build (surefire skips *IT classes), run it with
+ * {@code mvn test -Dtest=IdGenerationBenchmarkIT [-Dbenchmark.rows=10000000]}.
+ */
+public class IdGenerationBenchmarkIT {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 10_000_000);
+    private static final int BATCH = 1000;
+    private static final int REPORT_EVERY = 1_000_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void compareRandomAndTimeOrderedIds() throws SQLException {
+        insert("uuid-v4", UUID::randomUUID);
+        insert("uuid-v7", UuidV7::next);
+    }
+
+    private void insert(String label, Supplier<UUID> ids) throws SQLException {
+        Path file = directory.resolve(label);
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:" + file, "sa", "")) {
+            try (Statement statement = connection.createStatement()) {
+                // Same shape as the table Hibernate creates for Person
+                statement.execute("CREATE TABLE person (id UUID PRIMARY KEY, first_name VARCHAR(255), " +
+                        "last_name VARCHAR(255), first_name_search VARCHAR(255), last_name_search VARCHAR(255), " +
+                        "version BIGINT)");
+            }
+            connection.setAutoCommit(false);
+
+            System.out.printf("%s, %,d rows%n", label, ROWS);
+            long start = System.nanoTime();
+            long windowStart = start;
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO person (id, first_name, last_name, first_name_search, last_name_search, version) " +
+                            "VALUES (?, ?, ?, ?, ?, 0)")) {
+                for (int row = 1; row <= ROWS; row++) {
+                    insert.setObject(1, ids.get());
+                    insert.setString(2, "First" + row);
+                    insert.setString(3, "Name" + row % 50_000);
+                    insert.setString(4, "first" + row);
+                    insert.setString(5, "name" + row % 50_000);
+                    insert.addBatch();
+
+                    if (row % BATCH == 0) {
+                        insert.executeBatch();
+                        connection.commit();
+                    }
+                    if (row % REPORT_EVERY == 0) {
+                        long now = System.nanoTime();
+                        System.out.printf("  rows %,11d  %,10.0f rows/s%n", row, REPORT_EVERY / ((now - windowStart) / 1e9));
+                        windowStart = now;
+                    }
+                }
+                insert.executeBatch();
+                connection.commit();
+            }
+            long elapsed = System.nanoTime() - start;
+
+            try (Statement statement = connection.createStatement();
+                 var count = statement.executeQuery("SELECT COUNT(*) FROM person")) {
+                count.next();
+                assertEquals(ROWS, count.getLong(1));
+            }
+            System.out.printf("  total %,.0f rows/s in %.1f s%n", ROWS / (elapsed / 1e9), elapsed / 1e9);
+        }
+        System.out.printf("  database size %,d MB%n", size(directory, label) / (1024 * 1024));
+    }
+
+    private static long size(Path directory, String label) {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(label))
+                    .mapToLong(path -> path.toFile().length())
+                    .sum();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
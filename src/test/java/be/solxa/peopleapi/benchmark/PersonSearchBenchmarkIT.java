@@ -0,0 +1,94 @@
+package be.solxa.peopleapi.benchmark;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the original LOWER(...) LIKE search with the normalized search columns on one million rows.
+ * Not part of the regular build (surefire skips *IT classes), run it with
+ * {@code mvn test -Dtest=PersonSearchBenchmarkIT}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestPropertySource(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.datasource.url=jdbc:h2:mem:searchbench;DB_CLOSE_DELAY=-1"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class PersonSearchBenchmarkIT {
+
+    private static final int ROWS = 1_000_000;
+    private static final int WARMUP = 5;
+    private static final int ITERATIONS = 20;
+
+    private static final String LEGACY_CONTAINS =
+            "SELECT * FROM person WHERE LOWER(last_name) LIKE LOWER(CONCAT('%', ?, '%'))";
+    private static final String NORMALIZED_CONTAINS =
+            "SELECT * FROM person WHERE last_name_search LIKE CONCAT('%', ?, '%')";
+    private static final String NORMALIZED_PREFIX =
+            "SELECT * FROM person WHERE last_name_search >= ? AND last_name_search < ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void seed() {
+        long start = System.nanoTime();
+        // 50,000 distinct last names with 20 persons each
+        jdbcTemplate.update("INSERT INTO person (id, first_name, last_name, first_name_search, last_name_search, version) " +
+                "SELECT RANDOM_UUID(), 'First' || X, 'Name' || MOD(X, 50000), 'first' || X, 'name' || MOD(X, 50000), 0 " +
+                "FROM SYSTEM_RANGE(1, " + ROWS + ")");
+        jdbcTemplate.execute("ANALYZE");
+        System.out.printf("Seeded %,d persons in %d ms%n", ROWS, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Test
+    void compareSearchPaths() {
+        int legacy = count(LEGACY_CONTAINS, "NAME4217");
+        int normalized = count(NORMALIZED_CONTAINS, "name4217");
+        int prefix = count(NORMALIZED_PREFIX, "name4217", "name4218");
+        assertEquals(legacy, normalized);
+        assertEquals(legacy, prefix);
+
+        System.out.println("Prefix plan: " + jdbcTemplate.queryForObject(
+                "EXPLAIN " + NORMALIZED_PREFIX, String.class, "name4217", "name4218"));
+
+        report("LOWER(last_name) LIKE '%x%' (before)", LEGACY_CONTAINS, "NAME4217");
+        report("last_name_search LIKE '%x%'", NORMALIZED_CONTAINS, "name4217");
+        report("last_name_search prefix range", NORMALIZED_PREFIX, "name4217", "name4218");
+    }
+
+    private void report(String label, String sql, Object... args) {
+        for (int i = 0; i < WARMUP; i++) {
+            count(sql, args);
+        }
+
+        long[] timings = new long[ITERATIONS];
+        int rows = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            rows = count(sql, args);
+            timings[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(timings);
+        System.out.printf("%-40s rows=%-4d median=%8.3f ms  max=%8.3f ms%n",
+                label, rows, timings[ITERATIONS / 2] / 1e6, timings[ITERATIONS - 1] / 1e6);
+    }
+
+    private int count(String sql, Object... args) {
+        int[] rows = {0};
+        jdbcTemplate.query(sql, rs -> {
+            rows[0]++;
+        }, args);
+        return rows[0];
+    }
+}
@@ -0,0 +1,151 @@
+package be.solxa.peopleapi.benchmark;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures the time from launching a new JVM to the first successful {@code GET /api/persons/{id}}, for the
+ * regular jar and for the fast-start build (Spring AOT, the CDS archive from the training run and the
+ * {@code fast-start} profile), and prints the median and fastest of {@value #RUNS} starts of each.
+ * <p>
+ * The clock starts before the process is launched and the harness creates a person as soon as the port
+ * answers, then reads it back, so the time covers JVM start, context refresh and the first request through
+ * Hibernate. Build both variants first with {@code mvn -P fast-start package -DskipTests}, then run it with
+ * {@code mvn test -Dtest=StartupBenchmarkIT}. Not part of the regular build (surefire skips *IT classes).
+ */
+public class StartupBenchmarkIT {
+
+    private static final int RUNS = 5;
+    private static final Duration START_TIMEOUT = Duration.ofMinutes(2);
+    private static final Path TARGET = Path.of("target");
+    private static final Pattern CREATED_ID = Pattern.compile("\"id\"\\s*:\\s*\"([0-9a-f-]{36})\"");
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofMillis(200))
+            .build();
+
+    @Test
+    void compareRegularAndFastStart() throws Exception {
+        Path jar = jar(TARGET);
+        Path fastStartDir = TARGET.resolve("fast-start");
+        Path fastStartJar = jar(fastStartDir);
+        Path archive = fastStartDir.resolve("application.jsa");
+        assertTrue(Files.exists(archive), "No CDS archive, build with: mvn -P fast-start package -DskipTests");
+
+        Result regular = measure("regular", List.of("-jar", jar.toString()));
+        Result fastStart = measure("fast-start", List.of(
+                "-XX:SharedArchiveFile=" + archive,
+                "-Dspring.aot.enabled=true",
+                "-Dspring.profiles.active=fast-start",
+                "-jar", fastStartJar.toString()));
+
+        System.out.println(regular);
+        System.out.println(fastStart);
+    }
+
+    private Result measure(String label, List<String> jvmArguments) throws Exception {
+        List<Long> millis = new ArrayList<>();
+        for (int i = 0; i < RUNS; i++) {
+            millis.add(timeToFirstGet(jvmArguments));
+        }
+        millis.sort(null);
+        return new Result(label, millis.get(millis.size() / 2), millis.getFirst());
+    }
+
+    private long timeToFirstGet(List<String> jvmArguments) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArguments);
+        command.add("--server.port=" + port);
+        command.add("--logging.level.root=WARN");
+        command.add("--spring.jpa.show-sql=false");
+        command.add("--people.snapshot.restore-on-startup=false");
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            String baseUrl = "http://localhost:" + port;
+            String id = createPerson(baseUrl, process, start);
+            HttpRequest get = HttpRequest.newBuilder(URI.create(baseUrl + "/api/persons/" + id)).build();
+            int status = client.send(get, HttpResponse.BodyHandlers.discarding()).statusCode();
+            if (status != 200) {
+                throw new IllegalStateException("GET of the created person answered " + status);
+            }
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    // Polls until the application accepts a create, which is as soon as it serves requests
+    private String createPerson(String baseUrl, Process process, long start) throws Exception {
+        HttpRequest post = HttpRequest.newBuilder(URI.create(baseUrl + "/api/persons"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"firstName\":\"Startup\",\"lastName\":\"Probe\"}"))
+                .build();
+        while (System.nanoTime() - start < START_TIMEOUT.toNanos()) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("The application exited with status " + process.exitValue());
+            }
+            try {
+                HttpResponse<String> response = client.send(post, HttpResponse.BodyHandlers.ofString());
+                Matcher id = CREATED_ID.matcher(response.body());
+                if (response.statusCode() == 201 && id.find()) {
+                    return id.group(1);
+                }
+            } catch (ConnectException e) {
+                // Not listening yet
+            }
+            Thread.sleep(5);
+        }
+        throw new IllegalStateException("The application did not start within " + START_TIMEOUT);
+    }
+
+    private static Path jar(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().matches("personapi-.*\\.jar"))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No application jar in " + dir
+                            + ", build with: mvn -P fast-start package -DskipTests"));
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private record Result(String label, long medianMs, long fastestMs) {
+        @Override
+        public String toString() {
+            return String.format("%-10s time to first GET: median=%6d ms  fastest=%6d ms", label, medianMs, fastestMs);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package be.solxa.peopleapi.benchmark;
+
+import be.solxa.peopleapi.PeopleApiApplication;
+import org.h2.api.Trigger;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives the same closed-loop load against the application on Tomcat's platform thread pool and on virtual
+ * threads (the {@code virtual-threads} profile) and prints throughput and latency percentiles for both.
+ * <p>
+ * Each request sleeps in the database for {@value #QUERY_DELAY_MS} ms to stand in for a remote database, and
+ * there are more clients than Tomcat threads, which is where the two modes differ. Caches are off so every
+ * request reaches the database. Not part of the regular build (surefire skips *IT classes), run it with
+ * {@code mvn test -Dtest=ThreadModelBenchmarkIT}.
+ */
+public class ThreadModelBenchmarkIT {
+
+    private static final int ROWS = 10_000;
+    private static final int CLIENTS = 400;
+    private static final int TOMCAT_THREADS = 50;
+    private static final int QUERY_DELAY_MS = 5;
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+    private static final Duration MEASURE = Duration.ofSeconds(20);
+
+    @Test
+    void comparePlatformAndVirtualThreads() throws Exception {
+        Result platform = run("platform", null);
+        Result virtual = run("virtual", "virtual-threads");
+
+        System.out.println(platform);
+        System.out.println(virtual);
+        assertTrue(platform.ok() > 0 && virtual.ok() > 0);
+    }
+
+    private Result run(String label, String profile) throws Exception {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(PeopleApiApplication.class)
+                .properties(
+                        "server.port=0",
+                        "server.tomcat.threads.max=" + TOMCAT_THREADS,
+                        "spring.datasource.url=jdbc:h2:mem:threadbench-" + label + ";DB_CLOSE_DELAY=-1",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "people.cache.person.enabled=false",
+                        "people.cache.search.enabled=false",
+                        "logging.level.root=WARN");
+        if (profile != null) {
+            builder.profiles(profile);
+        }
+
+        try (ConfigurableApplicationContext context = builder.run()) {
+            List<UUID> ids = seed(context.getBean(JdbcTemplate.class));
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+
+            load(baseUrl, ids, WARMUP);
+            return load(baseUrl, ids, MEASURE).labelled(label);
+        }
+    }
+
+    private List<UUID> seed(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.update("INSERT INTO person (id, first_name, last_name, first_name_search, last_name_search, version) " +
+                "SELECT RANDOM_UUID(), 'First' || X, 'Name' || MOD(X, 1000), 'first' || X, 'name' || MOD(X, 1000), 0 " +
+                "FROM SYSTEM_RANGE(1, " + ROWS + ")");
+        // Stand-in for the network and disk latency of a real database
+        jdbcTemplate.execute("CREATE TRIGGER IF NOT EXISTS person_read_delay BEFORE SELECT ON person " +
+                "CALL 'be.solxa.peopleapi.benchmark.ThreadModelBenchmarkIT$ReadDelay'");
+        return jdbcTemplate.queryForList("SELECT id FROM person", UUID.class);
+    }
+
+    private Result load(String baseUrl, List<UUID> ids, Duration duration) throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        long deadline = System.nanoTime() + duration.toNanos();
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int i = 0; i < CLIENTS; i++) {
+                futures.add(clients.submit(() -> {
+                    LatencyLog log = new LatencyLog();
+                    while (System.nanoTime() < deadline) {
+                        UUID id = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/persons/" + id)).build();
+                        long start = System.nanoTime();
+                        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        log.record(System.nanoTime() - start, status == 200);
+                    }
+                    return log.toArray();
+                }));
+            }
+
+            LatencyLog all = new LatencyLog();
+            for (Future<long[]> future : futures) {
+                all.addAll(future.get());
+            }
+            return all.summarize(duration);
+        }
+    }
+
+    /**
+     * H2 statement trigger that delays every SELECT on the person table.
+     */
+    public static class ReadDelay implements Trigger {
+        @Override
+        public void fire(Connection connection, Object[] oldRow, Object[] newRow) {
+            try {
+                Thread.sleep(QUERY_DELAY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Latencies in nanoseconds, negative for failed requests.
+     */
+    private static class LatencyLog {
+        private long[] values = new long[1024];
+        private int size;
+
+        void record(long nanos, boolean ok) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = ok ? nanos : -nanos;
+        }
+
+        void addAll(long[] more) {
+            for (long value : more) {
+                if (size == values.length) {
+                    values = Arrays.copyOf(values, size * 2);
+                }
+                values[size++] = value;
+            }
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+
+        Result summarize(Duration duration) {
+            long[] ok = Arrays.stream(values, 0, size).filter(v -> v >= 0).sorted().toArray();
+            if (ok.length == 0) {
+                return new Result("", 0, size, 0, 0, 0);
+            }
+            return new Result("", ok.length, size - ok.length, ok.length / (double) duration.toSeconds(),
+                    percentile(ok, 0.50), percentile(ok, 0.99));
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)] / 1e6;
+        }
+    }
+
+    private record Result(String label, long ok, long failed, double throughput, double p50Ms, double p99Ms) {
+        Result labelled(String label) {
+            return new Result(label, ok, failed, throughput, p50Ms, p99Ms);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-10s ok=%-8d failed=%-6d throughput=%8.1f req/s  p50=%7.2f ms  p99=%7.2f ms",
+                    label, ok, failed, throughput, p50Ms, p99Ms);
+        }
+    }
+}
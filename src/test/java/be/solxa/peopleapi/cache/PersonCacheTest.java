@@ -0,0 +1,185 @@
+package be.solxa.peopleapi.cache;
+
+import be.solxa.peopleapi.PeopleApiProperties;
+import be.solxa.peopleapi.event.PersonChangedEvent;
+import be.solxa.peopleapi.model.Person;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersonCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Test
+    public void testHitAfterFirstLoad() {
+        PersonCache cache = new PersonCache(new PeopleApiProperties(), nanos::get);
+        UUID id = UUID.randomUUID();
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(id, key -> {
+            loads.incrementAndGet();
+            return Optional.of(person(key, 0));
+        });
+        Optional<Person> result = cache.get(id, key -> {
+            loads.incrementAndGet();
+            return Optional.of(person(key, 1));
+        });
+
+        assertEquals(1, loads.get());
+        assertEquals("0", result.orElseThrow().getLastName());
+        assertEquals(1, cache.stats().hitCount());
+        assertEquals(1, cache.stats().missCount());
+    }
+
+    @Test
+    public void testNotFoundIsCachedForNegativeTtl() {
+        PeopleApiProperties properties = new PeopleApiProperties();
+        properties.getCache().getPerson().setNegativeTtl(Duration.ofSeconds(5));
+        PersonCache cache = new PersonCache(properties, nanos::get);
+        UUID id = UUID.randomUUID();
+        AtomicInteger loads = new AtomicInteger();
+        Function<UUID, Optional<Person>> missingRow = key -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        };
+
+        assertTrue(cache.get(id, missingRow).isEmpty());
+        assertTrue(cache.get(id, missingRow).isEmpty());
+        assertEquals(1, loads.get());
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(6));
+        assertTrue(cache.get(id, missingRow).isEmpty());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testCreatedEventDropsNegativeEntry() {
+        PersonCache cache = new PersonCache(new PeopleApiProperties(), nanos::get);
+        UUID id = UUID.randomUUID();
+        cache.get(id, key -> Optional.empty());
+
+        cache.onPersonChanged(PersonChangedEvent.created(person(id, 0)));
+
+        assertTrue(cache.get(id, key -> Optional.of(person(key, 0))).isPresent());
+    }
+
+    @Test
+    public void testFoundEntryExpiresAfterTtl() {
+        PeopleApiProperties properties = new PeopleApiProperties();
+        properties.getCache().getPerson().setTtl(Duration.ofMinutes(1));
+        PersonCache cache = new PersonCache(properties, nanos::get);
+        UUID id = UUID.randomUUID();
+
+        cache.get(id, key -> Optional.of(person(key, 0)));
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+
+        assertEquals("1", cache.get(id, key -> Optional.of(person(key, 1))).orElseThrow().getLastName());
+    }
+
+    @Test
+    public void testSizeBoundEvicts() {
+        PeopleApiProperties properties = new PeopleApiProperties();
+        properties.getCache().getPerson().setMaximumSize(10);
+        PersonCache cache = new PersonCache(properties, nanos::get);
+
+        for (int i = 0; i < 100; i++) {
+            cache.get(UUID.randomUUID(), key -> Optional.of(person(key, 0)));
+        }
+        cache.cleanUp();
+
+        assertTrue(cache.size() <= 10);
+        assertTrue(cache.stats().evictionCount() >= 90);
+    }
+
+    @Test
+    public void testDisabledCacheAlwaysLoads() {
+        PeopleApiProperties properties = new PeopleApiProperties();
+        properties.getCache().getPerson().setEnabled(false);
+        PersonCache cache = new PersonCache(properties, nanos::get);
+        UUID id = UUID.randomUUID();
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(id, key -> Optional.of(person(key, loads.incrementAndGet())));
+        cache.get(id, key -> Optional.of(person(key, loads.incrementAndGet())));
+
+        assertEquals(2, loads.get());
+    }
+
+    /**
+     * Readers hammer one id while a writer keeps updating it, invalidating after each "commit" the way the
+     * transactional listener does. A read that starts after a write was committed and invalidated must
+     * never return an older version, even when its load read the row just before the commit.
+     */
+    @Test
+    public void testNoStaleReadAfterWriteCommits() throws Exception {
+        PersonCache cache = new PersonCache(new PeopleApiProperties());
+        UUID id = UUID.randomUUID();
+        AtomicReference<Person> row = new AtomicReference<>(person(id, 0));
+        AtomicInteger committedVersion = new AtomicInteger();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Function<UUID, Optional<Person>> loader = key -> {
+            Person current = row.get();
+            // Widen the window between reading the row and publishing it in the cache
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(20_000));
+            return Optional.of(current);
+        };
+
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> staleReads = new ArrayList<>();
+            for (int r = 0; r < 4; r++) {
+                staleReads.add(readers.submit(() -> {
+                    int stale = 0;
+                    while (writing.get()) {
+                        int committed = committedVersion.get();
+                        int seen = Integer.parseInt(cache.get(id, loader).orElseThrow().getLastName());
+                        if (seen < committed) {
+                            stale++;
+                        }
+                    }
+                    return stale;
+                }));
+            }
+
+            for (int version = 1; version <= 2000; version++) {
+                row.set(person(id, version));
+                cache.onPersonChanged(PersonChangedEvent.updated(person(id, version)));
+                committedVersion.set(version);
+                assertEquals(version, Integer.parseInt(cache.get(id, loader).orElseThrow().getLastName()));
+            }
+            writing.set(false);
+
+            for (Future<Integer> reader : staleReads) {
+                assertEquals(0, reader.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            readers.shutdownNow();
+        }
+    }
+
+    private static Person person(UUID id, int version) {
+        Person person = new Person();
+        person.setId(id);
+        person.setFirstName("John");
+        person.setLastName(String.valueOf(version));
+        return person;
+    }
+}
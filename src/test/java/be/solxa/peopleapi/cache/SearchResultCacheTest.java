@@ -0,0 +1,217 @@
+package be.solxa.peopleapi.cache;
+
+import be.solxa.peopleapi.PeopleApiProperties;
+import be.solxa.peopleapi.event.PersonChangedEvent;
+import be.solxa.peopleapi.model.Person;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchResultCacheTest {
+
+    private static final SearchResultCache.SearchKey KEY = new SearchResultCache.SearchKey("jo", null);
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final PersonGeneration generation = new PersonGeneration();
+    private final QueuedExecutor refreshes = new QueuedExecutor();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Supplier<List<Person>> loader = () -> List.of(person("Doe" + loads.incrementAndGet()));
+
+    @Test
+    public void testRepeatedSearchIsLoadedOnce() {
+        SearchResultCache cache = cache(new PeopleApiProperties());
+
+        cache.get(KEY, loader);
+        List<Person> result = cache.get(KEY, loader);
+
+        assertEquals("Doe1", result.getFirst().getLastName());
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.stats().hits());
+        assertEquals(1, cache.stats().misses());
+    }
+
+    @Test
+    public void testWriteServesStaleResultWhileOneRefreshRuns() {
+        SearchResultCache cache = cache(new PeopleApiProperties());
+        cache.get(KEY, loader);
+
+        write();
+        for (int i = 0; i < 10; i++) {
+            assertEquals("Doe1", cache.get(KEY, loader).getFirst().getLastName());
+        }
+        assertEquals(1, refreshes.size());
+        assertEquals(1, loads.get());
+
+        refreshes.runAll();
+
+        assertEquals("Doe2", cache.get(KEY, loader).getFirst().getLastName());
+        assertEquals(2, loads.get());
+        assertEquals(10, cache.stats().staleHits());
+    }
+
+    @Test
+    public void testStaleResultKeepsTheGenerationItWasLoadedAt() {
+        SearchResultCache cache = cache(new PeopleApiProperties());
+        assertEquals(0, cache.lookup(KEY, loader).generation());
+
+        write();
+        SearchResultCache.Result stale = cache.lookup(KEY, loader);
+        assertEquals("Doe1", stale.persons().getFirst().getLastName());
+        assertEquals(0, stale.generation());
+
+        refreshes.runAll();
+
+        SearchResultCache.Result refreshed = cache.lookup(KEY, loader);
+        assertEquals("Doe2", refreshed.persons().getFirst().getLastName());
+        assertEquals(1, refreshed.generation());
+    }
+
+    @Test
+    public void testResultOlderThanMaxStaleIsReloadedBeforeReturning() {
+        PeopleApiProperties properties = new PeopleApiProperties();
+        properties.getCache().getSearch().setMaxStale(Duration.ofSeconds(2));
+        SearchResultCache cache = cache(properties);
+        cache.get(KEY, loader);
+
+        write();
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(3));
+
+        assertEquals("Doe2", cache.get(KEY, loader).getFirst().getLastName());
+        assertEquals(0, refreshes.size());
+    }
+
+    @Test
+    public void testZeroMaxStaleNeverServesOutdatedResults() {
+        PeopleApiProperties properties = new PeopleApiProperties();
+        properties.getCache().getSearch().setMaxStale(Duration.ZERO);
+        SearchResultCache cache = cache(properties);
+        nanos.set(1);
+        cache.get(KEY, loader);
+
+        write();
+        nanos.incrementAndGet();
+
+        assertEquals("Doe2", cache.get(KEY, loader).getFirst().getLastName());
+    }
+
+    @Test
+    public void testWriteDuringLoadLeavesResultOutdated() {
+        PeopleApiProperties properties = new PeopleApiProperties();
+        properties.getCache().getSearch().setMaxStale(Duration.ZERO);
+        SearchResultCache cache = cache(properties);
+        nanos.set(1);
+
+        cache.get(KEY, () -> {
+            write();
+            return loader.get();
+        });
+        nanos.incrementAndGet();
+
+        assertEquals("Doe2", cache.get(KEY, loader).getFirst().getLastName());
+    }
+
+    @Test
+    public void testWeightBoundEvicts() {
+        PeopleApiProperties properties = new PeopleApiProperties();
+        properties.getCache().getSearch().setMaximumWeight(DataSize.ofKilobytes(4));
+        SearchResultCache cache = cache(properties);
+
+        for (int i = 0; i < 100; i++) {
+            cache.get(new SearchResultCache.SearchKey("name" + i, null), loader);
+        }
+        cache.cleanUp();
+
+        assertTrue(cache.stats().weight() <= 4096);
+        assertTrue(cache.stats().evictions() > 0);
+    }
+
+    @Test
+    public void testDisabledCacheAlwaysLoads() {
+        PeopleApiProperties properties = new PeopleApiProperties();
+        properties.getCache().getSearch().setEnabled(false);
+        SearchResultCache cache = cache(properties);
+
+        cache.get(KEY, loader);
+        cache.get(KEY, loader);
+
+        assertEquals(2, loads.get());
+    }
+
+    private SearchResultCache cache(PeopleApiProperties properties) {
+        return new SearchResultCache(properties, generation, nanos::get, refreshes);
+    }
+
+    private void write() {
+        generation.onPersonChanged(PersonChangedEvent.deleted(UUID.randomUUID()));
+    }
+
+    private static Person person(String lastName) {
+        Person person = new Person();
+        person.setId(UUID.randomUUID());
+        person.setFirstName("John");
+        person.setLastName(lastName);
+        return person;
+    }
+
+    /**
+     * Holds submitted refreshes until the test runs them.
+     */
+    private static class QueuedExecutor extends AbstractExecutorService {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        int size() {
+            return tasks.size();
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            tasks.clear();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            List<Runnable> pending = List.copyOf(tasks);
+            tasks.clear();
+            return pending;
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package be.solxa.peopleapi.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    private final AtomicLong generation = new AtomicLong();
+    private final SingleFlight<String, String> flight = new SingleFlight<>("test", generation::get);
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentCallersShareOneLoad() throws Exception {
+        List<Future<String>> results = callConcurrently(blockingLoader(() -> "Doe" + loads.incrementAndGet()));
+
+        release.countDown();
+        for (Future<String> result : results) {
+            assertEquals("Doe1", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, flight.executed());
+        assertEquals(CALLERS - 1, flight.collapsed());
+        assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    public void testFailureReachesEveryCaller() throws Exception {
+        IllegalStateException failure = new IllegalStateException("database down");
+        List<Future<String>> results = callConcurrently(blockingLoader(() -> {
+            loads.incrementAndGet();
+            throw failure;
+        }));
+
+        release.countDown();
+        for (Future<String> result : results) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertSame(failure, e.getCause());
+        }
+        assertEquals(1, loads.get());
+        assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    public void testNothingIsKeptAfterCompletion() {
+        assertEquals("Doe1", flight.execute("doe", () -> "Doe" + loads.incrementAndGet()));
+        assertEquals("Doe2", flight.execute("doe", () -> "Doe" + loads.incrementAndGet()));
+
+        assertEquals(2, flight.executed());
+        assertEquals(0, flight.collapsed());
+        assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    public void testCallAfterWriteDoesNotJoinOlderLoad() throws Exception {
+        Future<String> before = executor.submit(() -> flight.execute("doe", blockingLoader(() -> "old")));
+        awaitTrue(() -> flight.inFlight() == 1);
+
+        generation.incrementAndGet();
+        assertEquals("new", flight.execute("doe", () -> "new"));
+
+        release.countDown();
+        assertEquals("old", before.get(5, TimeUnit.SECONDS));
+        assertEquals(2, flight.executed());
+        assertEquals(0, flight.collapsed());
+        assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    public void testDifferentKeysDoNotShare() {
+        assertEquals("Doe", flight.execute("doe", () -> "Doe"));
+        assertEquals("Smith", flight.execute("smith", () -> "Smith"));
+
+        assertEquals(2, flight.executed());
+    }
+
+    // Starts one caller, waits until its load runs, then starts the others while it is still running
+    private List<Future<String>> callConcurrently(Supplier<String> loader) {
+        List<Future<String>> results = new ArrayList<>();
+        results.add(executor.submit(() -> flight.execute("doe", loader)));
+        awaitTrue(() -> flight.inFlight() == 1);
+        for (int i = 1; i < CALLERS; i++) {
+            results.add(executor.submit(() -> flight.execute("doe", loader)));
+        }
+        awaitTrue(() -> flight.collapsed() == CALLERS - 1);
+        return results;
+    }
+
+    private Supplier<String> blockingLoader(Supplier<String> loader) {
+        return () -> {
+            try {
+                if (!release.await(5, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("Load was never released");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            return loader.get();
+        };
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condition not reached in time");
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -3,18 +3,29 @@ package be.solxa.peopleapi.controller;
 import be.solxa.peopleapi.dto.PersonDTO;
 import be.solxa.peopleapi.model.Person;
 import be.solxa.peopleapi.repository.PersonRepository;
+import be.solxa.peopleapi.search.PersonNameSuggester;
+import be.solxa.peopleapi.search.PhoneticBackfill;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.util.List;
 import java.util.UUID;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -22,7 +33,9 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @AutoConfigureMockMvc
 @TestPropertySource(properties = {
         "spring.jpa.hibernate.ddl-auto=create-drop",
-        "spring.datasource.url=jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1"
+        "spring.datasource.url=jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "people.cache.search.max-stale=0s"
 })
 public class PersonControllerIT {
 
@@ -35,6 +48,18 @@ public class PersonControllerIT {
     @Autowired
     private PersonRepository personRepository;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PhoneticBackfill phoneticBackfill;
+
+    @Autowired
+    private PersonNameSuggester nameSuggester;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     private Person testPerson;
     private UUID testId;
 
@@ -80,6 +105,92 @@ public class PersonControllerIT {
                 .andExpect(jsonPath("$[0].firstName").value("Jane"));
     }
 
+    @Test
+    void getAllPersons_PhoneticMatch_ShouldFindSoundAlikeNames() throws Exception {
+        Person anotherPerson = new Person();
+        anotherPerson.setFirstName("Jane");
+        anotherPerson.setLastName("Schmidt");
+        personRepository.save(anotherPerson);
+
+        mockMvc.perform(get("/api/persons").param("lastName", "Smith").param("match", "phonetic"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].lastName").value("Schmidt"));
+    }
+
+    @Test
+    void phoneticBackfill_ShouldFillInMissingCodes() throws Exception {
+        jdbcTemplate.update("UPDATE person SET first_name_phonetic = NULL, first_name_phonetic_alt = NULL, " +
+                "last_name_phonetic = NULL, last_name_phonetic_alt = NULL");
+
+        assertEquals(1, phoneticBackfill.run());
+        assertEquals(0, phoneticBackfill.run());
+        mockMvc.perform(get("/api/persons").param("lastName", "Dough").param("match", "phonetic"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(testId.toString()));
+    }
+
+    @Test
+    void suggest_ShouldFollowWritesAfterRebuild() throws Exception {
+        Person anotherPerson = new Person();
+        anotherPerson.setFirstName("Jane");
+        anotherPerson.setLastName("Doering");
+        personRepository.save(anotherPerson);
+        nameSuggester.rebuild();
+
+        mockMvc.perform(post("/api/persons")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new PersonDTO(null, "Jim", "Doe"))))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/api/persons/suggest").param("prefix", "do"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("Doe"))
+                .andExpect(jsonPath("$[0].count").value(2))
+                .andExpect(jsonPath("$[1].name").value("Doering"));
+    }
+
+    @Test
+    void getPersonsPage_ShouldWalkAllPersonsWithCursor() throws Exception {
+        Person anotherPerson = new Person();
+        anotherPerson.setFirstName("Jane");
+        anotherPerson.setLastName("Smith");
+        personRepository.save(anotherPerson);
+
+        String body = mockMvc.perform(get("/api/persons").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].lastName").value("Doe"))
+                .andExpect(jsonPath("$.next").exists())
+                .andReturn().getResponse().getContentAsString();
+        String next = objectMapper.readTree(body).get("next").asText();
+
+        mockMvc.perform(get("/api/persons").param("limit", "1").param("cursor", next))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].lastName").value("Smith"))
+                .andExpect(jsonPath("$.next").doesNotExist());
+    }
+
+    @Test
+    void exportPersons_ShouldStreamOnePersonPerLine() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/persons/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(1, lines.length);
+        PersonDTO exported = objectMapper.readValue(lines[0], PersonDTO.class);
+        assertEquals(testId, exported.getId());
+    }
+
     @Test
     void getPersonById_ExistingId_ShouldReturnPerson() throws Exception {
         mockMvc.perform(get("/api/persons/{id}", testId))
@@ -125,6 +236,23 @@ public class PersonControllerIT {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void createPersons_ShouldInsertValidAndRejectInvalid() throws Exception {
+        PersonDTO valid1 = new PersonDTO(null, "Alice", "Johnson");
+        PersonDTO invalid = new PersonDTO(null, "Bob", "");
+        PersonDTO valid2 = new PersonDTO(null, "Carol", "White");
+
+        mockMvc.perform(post("/api/persons/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(valid1, invalid, valid2))))
+                .andExpect(status().isMultiStatus())
+                .andExpect(jsonPath("$[0].person.id").exists())
+                .andExpect(jsonPath("$[1].status").value("REJECTED"))
+                .andExpect(jsonPath("$[2].person.firstName").value("Carol"));
+
+        assertEquals(3, personRepository.count());
+    }
+
     @Test
     void updatePerson_ExistingId_ShouldUpdateAndReturnPerson() throws Exception {
         PersonDTO updatedPerson = new PersonDTO();
@@ -141,6 +269,81 @@ public class PersonControllerIT {
                 .andExpect(jsonPath("$.lastName").value("Updated"));
     }
 
+    @Test
+    void updatePerson_ShouldBeVisibleToCachedSearch() throws Exception {
+        mockMvc.perform(get("/api/persons").param("lastName", "Doe"))
+                .andExpect(jsonPath("$.length()").value(1));
+
+        PersonDTO updatedPerson = new PersonDTO();
+        updatedPerson.setFirstName("John");
+        updatedPerson.setLastName("Updated");
+        mockMvc.perform(put("/api/persons/{id}", testId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updatedPerson)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/persons").param("lastName", "Doe"))
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    void getPersonById_MatchingETag_ShouldReturnNotModified() throws Exception {
+        String etag = mockMvc.perform(get("/api/persons/{id}", testId))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/persons/{id}", testId).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void updatePerson_IfMatch_ShouldRejectOutdatedVersion() throws Exception {
+        PersonDTO updatedPerson = new PersonDTO(null, "John", "Updated");
+
+        mockMvc.perform(put("/api/persons/{id}", testId)
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updatedPerson)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+
+        mockMvc.perform(put("/api/persons/{id}", testId)
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updatedPerson)))
+                .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(put("/api/persons/{id}", UUID.randomUUID())
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updatedPerson)))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/api/persons/{id}", testId).header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+    }
+
+    @Test
+    void getAllPersons_WeakETag_ShouldChangeOnWrite() throws Exception {
+        String etag = mockMvc.perform(get("/api/persons"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertTrue(etag.startsWith("W/"));
+
+        mockMvc.perform(get("/api/persons").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(delete("/api/persons/{id}", testId))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/api/persons").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
     @Test
     void updatePerson_NonExistingId_ShouldReturnNotFound() throws Exception {
         UUID nonExistingId = UUID.randomUUID();
@@ -166,4 +369,42 @@ public class PersonControllerIT {
         mockMvc.perform(delete("/api/persons/{id}", nonExistingId))
                 .andExpect(status().isNotFound());
     }
-}
\ No newline at end of file
+
+    @Test
+    void updateAndDelete_ShouldEachExecuteASingleStatement() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        PersonDTO updatedPerson = new PersonDTO(null, "John", "Updated");
+
+        statistics.clear();
+        mockMvc.perform(put("/api/persons/{id}", testId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updatedPerson)))
+                .andExpect(status().isOk());
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        mockMvc.perform(put("/api/persons/{id}", UUID.randomUUID())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updatedPerson)))
+                .andExpect(status().isNotFound());
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        mockMvc.perform(put("/api/persons/{id}", testId)
+                        .header(HttpHeaders.IF_MATCH, "\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updatedPerson)))
+                .andExpect(status().isOk());
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        mockMvc.perform(delete("/api/persons/{id}", testId))
+                .andExpect(status().isNoContent());
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        mockMvc.perform(delete("/api/persons/{id}", testId))
+                .andExpect(status().isNotFound());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
@@ -1,30 +1,55 @@
 package be.solxa.peopleapi.controller;
 
+import be.solxa.peopleapi.dto.PersonCursor;
 import be.solxa.peopleapi.dto.PersonDTO;
+import be.solxa.peopleapi.dto.PersonField;
+import be.solxa.peopleapi.exception.WriteQueueFullException;
+import be.solxa.peopleapi.mapper.PersonArrayHttpMessageConverter;
+import be.solxa.peopleapi.mapper.PersonJsonWriter;
 import be.solxa.peopleapi.mapper.PersonMapper;
 import be.solxa.peopleapi.model.Person;
+import be.solxa.peopleapi.search.NameTrie;
+import be.solxa.peopleapi.service.PersonBatchResult;
 import be.solxa.peopleapi.service.PersonService;
+import be.solxa.peopleapi.service.SearchMode;
+import be.solxa.peopleapi.service.VersionedPersons;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.mockito.Mockito.when;
 
 @WebMvcTest(PersonController.class)
+@Import({PersonJsonWriter.class, PersonArrayHttpMessageConverter.class})
 public class PersonControllerTest {
 
     @Autowired
@@ -64,14 +89,13 @@ public class PersonControllerTest {
 
         // Configurer les mocks
         when(personService.search(null, null)).thenReturn(Arrays.asList(person1, person2));
-        when(personMapper.toDTO(person1)).thenReturn(dto1);
-        when(personMapper.toDTO(person2)).thenReturn(dto2);
 
+        // Written straight from the entities, byte for byte what the DTOs serialize to
         mockMvc.perform(get("/api/persons"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.length()").value(2))
-                .andExpect(jsonPath("$[0].firstName").value("John"))
-                .andExpect(jsonPath("$[1].firstName").value("Jane"));
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().string(objectMapper.writeValueAsString(List.of(dto1, dto2))));
+        verify(personMapper, never()).toDTO(any());
     }
 
     @Test
@@ -90,14 +114,197 @@ public class PersonControllerTest {
 
         // Configurer les mocks
         when(personService.search("Jo", null)).thenReturn(List.of(person));
-        when(personMapper.toDTO(person)).thenReturn(dto);
 
         mockMvc.perform(get("/api/persons").param("firstName", "Jo"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(dto.getId().toString()))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].firstName").value("John"));
+    }
+
+    @Test
+    public void testStaleSearchIsServedWithTheETagItWasLoadedAt() throws Exception {
+        Person person = new Person();
+        person.setId(UUID.randomUUID());
+        person.setFirstName("John");
+        person.setLastName("Doe");
+
+        // The cache still serves the result of generation 1 while a write moved the list to generation 2
+        when(personService.listVersion()).thenReturn("1-2");
+        when(personService.isCachedSearch("Jo", null)).thenReturn(true);
+        when(personService.searchVersioned("Jo", null)).thenReturn(new VersionedPersons(List.of(person), "1-1"));
+
+        mockMvc.perform(get("/api/persons").param("firstName", "Jo"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"1-1\""))
+                .andExpect(jsonPath("$[0].lastName").value("Doe"));
+
+        mockMvc.perform(get("/api/persons").param("firstName", "Jo").header(HttpHeaders.IF_NONE_MATCH, "W/\"1-1\""))
+                .andExpect(status().isNotModified());
+
+        // Once refreshed the revalidation gets the new result instead of a 304
+        person.setLastName("Dupont");
+        when(personService.searchVersioned("Jo", null)).thenReturn(new VersionedPersons(List.of(person), "1-2"));
+
+        mockMvc.perform(get("/api/persons").param("firstName", "Jo").header(HttpHeaders.IF_NONE_MATCH, "W/\"1-1\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"1-2\""))
+                .andExpect(jsonPath("$[0].lastName").value("Dupont"));
+    }
+
+    @Test
+    public void testGetPersonsWithPrefixMatch() throws Exception {
+        Person person = new Person();
+        person.setId(UUID.randomUUID());
+        person.setFirstName("John");
+        person.setLastName("Doe");
+
+        when(personService.searchByPrefix("Jo", null)).thenReturn(List.of(person));
+
+        mockMvc.perform(get("/api/persons").param("firstName", "Jo").param("match", "prefix"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.length()").value(1))
                 .andExpect(jsonPath("$[0].firstName").value("John"));
     }
 
+    @Test
+    public void testGetPersonsAsCbor() throws Exception {
+        Person person = new Person();
+        person.setId(UUID.randomUUID());
+        person.setFirstName("John");
+        person.setLastName("Doe");
+
+        when(personService.search(null, null)).thenReturn(List.of(person));
+
+        byte[] body = mockMvc.perform(get("/api/persons").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        List<PersonDTO> persons = new ObjectMapper(new CBORFactory()).readValue(body, new TypeReference<List<PersonDTO>>() {
+        });
+        assertEquals(List.of(new PersonDTO(person.getId(), "John", "Doe")), persons);
+    }
+
+    @Test
+    public void testGetPersonsWithUnsupportedAccept() throws Exception {
+        mockMvc.perform(get("/api/persons").accept(MediaType.TEXT_PLAIN))
+                .andExpect(status().isNotAcceptable());
+
+        verify(personService, never()).search(any(), any());
+    }
+
+    @Test
+    public void testGetPersonsWithUnknownMatchMode() throws Exception {
+        mockMvc.perform(get("/api/persons").param("firstName", "Jo").param("match", "fuzzy"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testGetPersonsWithFields() throws Exception {
+        UUID id = UUID.randomUUID();
+        when(personService.searchProjected("Jo", null, SearchMode.CONTAINS, EnumSet.of(PersonField.ID, PersonField.LAST_NAME)))
+                .thenReturn(List.of(new PersonDTO(id, null, "Doe")));
+
+        mockMvc.perform(get("/api/persons").param("firstName", "Jo").param("fields", "id, lastName"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(id.toString()))
+                .andExpect(jsonPath("$[0].lastName").value("Doe"))
+                .andExpect(jsonPath("$[0].firstName").doesNotExist());
+
+        verify(personService, never()).search(any(), any());
+        verify(personMapper, never()).toDTO(any());
+    }
+
+    @Test
+    public void testGetPersonsWithUnknownField() throws Exception {
+        mockMvc.perform(get("/api/persons").param("fields", "id,email"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testGetPersonsPage() throws Exception {
+        Person person = new Person();
+        person.setId(UUID.randomUUID());
+        person.setFirstName("John");
+        person.setLastName("Doe");
+
+        PersonDTO dto = new PersonDTO();
+        dto.setId(person.getId());
+        dto.setFirstName("John");
+        dto.setLastName("Doe");
+
+        when(personService.searchPage(isNull(), isNull(), isNull(), eq(1)))
+                .thenReturn(new SliceImpl<>(List.of(person), PageRequest.ofSize(1), true));
+        when(personMapper.toDTO(person)).thenReturn(dto);
+
+        mockMvc.perform(get("/api/persons").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].firstName").value("John"))
+                .andExpect(jsonPath("$.next").value(PersonCursor.after(person).encode()));
+    }
+
+    @Test
+    public void testGetPersonsLastPageHasNoNextCursor() throws Exception {
+        UUID afterId = UUID.randomUUID();
+        String cursor = new PersonCursor("Doe", "John", afterId).encode();
+
+        when(personService.searchPage(isNull(), isNull(), any(PersonCursor.class), eq(10)))
+                .thenReturn(new SliceImpl<>(List.of(), PageRequest.ofSize(10), false));
+
+        mockMvc.perform(get("/api/persons").param("limit", "10").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(0))
+                .andExpect(jsonPath("$.next").doesNotExist());
+    }
+
+    @Test
+    public void testGetPersonsPageWithMalformedCursor() throws Exception {
+        mockMvc.perform(get("/api/persons").param("limit", "10").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testGetPersonsPageWithInvalidLimit() throws Exception {
+        mockMvc.perform(get("/api/persons").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testExportPersons() throws Exception {
+        Person person1 = new Person();
+        person1.setId(UUID.randomUUID());
+        person1.setFirstName("John");
+        person1.setLastName("Doe");
+
+        Person person2 = new Person();
+        person2.setId(UUID.randomUUID());
+        person2.setFirstName("Jane");
+        person2.setLastName("Smith");
+
+        PersonDTO dto1 = new PersonDTO(person1.getId(), "John", "Doe");
+        PersonDTO dto2 = new PersonDTO(person2.getId(), "Jane", "Smith");
+
+        doAnswer(invocation -> {
+            Consumer<Person> consumer = invocation.getArgument(0);
+            consumer.accept(person1);
+            consumer.accept(person2);
+            return null;
+        }).when(personService).exportPersons(any());
+
+        MvcResult result = mockMvc.perform(get("/api/persons/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(objectMapper.writeValueAsString(dto1) + "\n"
+                        + objectMapper.writeValueAsString(dto2) + "\n"));
+    }
+
     @Test
     public void testGetPersonById() throws Exception {
         UUID id = UUID.randomUUID();
@@ -125,6 +332,80 @@ public class PersonControllerTest {
                 .andExpect(jsonPath("$.lastName").value("Doe"));
     }
 
+    @Test
+    public void testGetPersonByIdAsSmile() throws Exception {
+        UUID id = UUID.randomUUID();
+        Person person = new Person();
+        person.setId(id);
+        person.setFirstName("John");
+        person.setLastName("Doe");
+        PersonDTO dto = new PersonDTO(id, "John", "Doe");
+
+        when(personService.getPersonById(id)).thenReturn(Optional.of(person));
+        when(personMapper.toDTO(person)).thenReturn(dto);
+
+        byte[] body = mockMvc.perform(get("/api/persons/{id}", id).accept(PersonJsonWriter.APPLICATION_SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(PersonJsonWriter.APPLICATION_SMILE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertEquals(dto, new ObjectMapper(new SmileFactory()).readValue(body, PersonDTO.class));
+    }
+
+    @Test
+    public void testGetPersonByIdNotModified() throws Exception {
+        UUID id = UUID.randomUUID();
+        Person person = new Person();
+        person.setId(id);
+        person.setFirstName("John");
+        person.setLastName("Doe");
+        person.setVersion(7L);
+
+        when(personService.getPersonById(id)).thenReturn(Optional.of(person));
+
+        mockMvc.perform(get("/api/persons/{id}", id).header(HttpHeaders.IF_NONE_MATCH, "\"7\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"7\""))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+
+        verify(personMapper, never()).toDTO(any());
+    }
+
+    @Test
+    public void testGetPersonByIdETagDependsOnFormat() throws Exception {
+        UUID id = UUID.randomUUID();
+        Person person = new Person();
+        person.setId(id);
+        person.setFirstName("John");
+        person.setLastName("Doe");
+        person.setVersion(7L);
+
+        when(personService.getPersonById(id)).thenReturn(Optional.of(person));
+        when(personMapper.toDTO(person)).thenReturn(new PersonDTO(id, "John", "Doe"));
+
+        // A JSON copy can't be revalidated by a CBOR request
+        mockMvc.perform(get("/api/persons/{id}", id)
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"7\""))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"7-cbor\""))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+
+        mockMvc.perform(get("/api/persons/{id}", id)
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"7-cbor\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    public void testGetPersonByIdWithUnsupportedAccept() throws Exception {
+        mockMvc.perform(get("/api/persons/{id}", UUID.randomUUID()).accept(MediaType.APPLICATION_XML))
+                .andExpect(status().isNotAcceptable());
+
+        verify(personService, never()).getPersonById(any());
+    }
+
     @Test
     public void testGetPersonByIdNotFound() throws Exception {
         UUID id = UUID.randomUUID();
@@ -174,6 +455,143 @@ public class PersonControllerTest {
                 .andExpect(jsonPath("$.lastName").value("Doe"));
     }
 
+    @Test
+    public void testCountPersons() throws Exception {
+        when(personService.listVersion()).thenReturn("1-1");
+        when(personService.count(null, "Do")).thenReturn(42L);
+
+        mockMvc.perform(get("/api/persons/count").param("lastName", "Do"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(42));
+
+        verify(personService, never()).search(any(), any());
+    }
+
+    @Test
+    public void testFacetsByFirstName() throws Exception {
+        when(personService.listVersion()).thenReturn("1-1");
+        when(personService.facets(PersonField.FIRST_NAME, null, "Doe", 2))
+                .thenReturn(List.of(new NameTrie.Suggestion("John", 5), new NameTrie.Suggestion("Jane", 2)));
+
+        mockMvc.perform(get("/api/persons/facets")
+                        .param("field", "firstName")
+                        .param("top", "2")
+                        .param("lastName", "Doe"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("John"))
+                .andExpect(jsonPath("$[0].count").value(5));
+    }
+
+    @Test
+    public void testSuggestNames() throws Exception {
+        when(personService.suggest(PersonField.FIRST_NAME, "Jo", 5))
+                .thenReturn(List.of(new NameTrie.Suggestion("John", 4), new NameTrie.Suggestion("Joe", 1)));
+
+        mockMvc.perform(get("/api/persons/suggest")
+                        .param("prefix", "Jo")
+                        .param("field", "firstName")
+                        .param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("John"))
+                .andExpect(jsonPath("$[0].count").value(4));
+    }
+
+    @Test
+    public void testSuggestRejectsNonNameField() throws Exception {
+        mockMvc.perform(get("/api/persons/suggest").param("prefix", "Jo").param("field", "id"))
+                .andExpect(status().isBadRequest());
+
+        verify(personService, never()).suggest(any(), any(), anyInt());
+    }
+
+    @Test
+    public void testCreatePersonAcceptedByWriteBehind() throws Exception {
+        UUID id = UUID.randomUUID();
+        PersonDTO inputDto = new PersonDTO(null, "John", "Doe");
+        Person person = new Person();
+        person.setId(id);
+        person.setFirstName("John");
+        person.setLastName("Doe");
+
+        when(personMapper.toEntity(any(PersonDTO.class))).thenReturn(person);
+        when(personService.isWriteBehindEnabled()).thenReturn(true);
+        when(personService.acceptPerson(person)).thenReturn(person);
+        when(personMapper.toDTO(person)).thenReturn(new PersonDTO(id, "John", "Doe"));
+
+        mockMvc.perform(post("/api/persons")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(inputDto)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, "/api/persons/" + id))
+                .andExpect(jsonPath("$.id").value(id.toString()));
+
+        verify(personService, never()).createPerson(any(Person.class));
+    }
+
+    @Test
+    public void testCreatePersonWriteQueueFull() throws Exception {
+        when(personMapper.toEntity(any(PersonDTO.class))).thenReturn(new Person());
+        when(personService.isWriteBehindEnabled()).thenReturn(true);
+        when(personService.acceptPerson(any(Person.class)))
+                .thenThrow(new WriteQueueFullException("Write queue is full, retry later"));
+
+        mockMvc.perform(post("/api/persons")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new PersonDTO(null, "John", "Doe"))))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    public void testCreatePersonsPartiallyRejected() throws Exception {
+        UUID id = UUID.randomUUID();
+
+        PersonDTO validDto = new PersonDTO(null, "John", "Doe");
+        PersonDTO invalidDto = new PersonDTO(null, "", "Doe");
+
+        Person savedPerson = new Person();
+        savedPerson.setId(id);
+        savedPerson.setFirstName("John");
+        savedPerson.setLastName("Doe");
+
+        when(personMapper.toEntity(any(PersonDTO.class))).thenReturn(new Person());
+        when(personService.createPersons(any())).thenReturn(List.of(
+                new PersonBatchResult(0, savedPerson, null),
+                new PersonBatchResult(1, null, "First name cannot be empty")));
+        when(personMapper.toDTO(savedPerson)).thenReturn(new PersonDTO(id, "John", "Doe"));
+
+        mockMvc.perform(post("/api/persons/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(validDto, invalidDto))))
+                .andExpect(status().isMultiStatus())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].status").value("CREATED"))
+                .andExpect(jsonPath("$[0].person.id").value(id.toString()))
+                .andExpect(jsonPath("$[1].index").value(1))
+                .andExpect(jsonPath("$[1].status").value("REJECTED"))
+                .andExpect(jsonPath("$[1].error").value("First name cannot be empty"));
+    }
+
+    @Test
+    public void testCreatePersonsAllCreated() throws Exception {
+        Person savedPerson = new Person();
+        savedPerson.setId(UUID.randomUUID());
+        savedPerson.setFirstName("John");
+        savedPerson.setLastName("Doe");
+
+        when(personMapper.toEntity(any(PersonDTO.class))).thenReturn(new Person());
+        when(personService.createPersons(any())).thenReturn(List.of(new PersonBatchResult(0, savedPerson, null)));
+        when(personMapper.toDTO(savedPerson)).thenReturn(new PersonDTO(savedPerson.getId(), "John", "Doe"));
+
+        mockMvc.perform(post("/api/persons/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(new PersonDTO(null, "John", "Doe")))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$[0].status").value("CREATED"));
+    }
+
     @Test
     public void testUpdatePerson() throws Exception {
         UUID id = UUID.randomUUID();
@@ -238,6 +656,47 @@ public class PersonControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    public void testUpdatePersonWithCborIfMatch() throws Exception {
+        UUID id = UUID.randomUUID();
+        PersonDTO inputDto = new PersonDTO(null, "John", "Doe");
+        Person person = new Person();
+        person.setFirstName("John");
+        person.setLastName("Doe");
+        Person updated = new Person();
+        updated.setId(id);
+        updated.setFirstName("John");
+        updated.setLastName("Doe");
+        updated.setVersion(4L);
+
+        when(personMapper.toEntity(any(PersonDTO.class))).thenReturn(person);
+        when(personService.updatePerson(id, person, 3L)).thenReturn(Optional.of(updated));
+        when(personMapper.toDTO(updated)).thenReturn(new PersonDTO(id, "John", "Doe"));
+
+        mockMvc.perform(put("/api/persons/{id}", id)
+                        .header(HttpHeaders.IF_MATCH, "\"3-cbor\"")
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(inputDto)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4-cbor\""))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+    }
+
+    @Test
+    public void testUpdatePersonWithWeakIfMatch() throws Exception {
+        UUID id = UUID.randomUUID();
+        PersonDTO inputDto = new PersonDTO(null, "John", "Doe");
+
+        mockMvc.perform(put("/api/persons/{id}", id)
+                        .header(HttpHeaders.IF_MATCH, "W/\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(inputDto)))
+                .andExpect(status().isPreconditionFailed());
+
+        verify(personService, never()).updatePerson(any(), any(), any());
+    }
+
     @Test
     public void testDeletePerson() throws Exception {
         UUID id = UUID.randomUUID();
@@ -0,0 +1,124 @@
+package be.solxa.peopleapi.mapper;
+
+import be.solxa.peopleapi.dto.PersonDTO;
+import be.solxa.peopleapi.model.Person;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersonJsonWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PersonJsonWriter writer = new PersonJsonWriter(objectMapper);
+    private final PersonMapper mapper = new PersonMapper();
+
+    @Test
+    public void testArrayMatchesTheDTOSerialization() throws IOException {
+        List<Person> persons = List.of(
+                person(UUID.randomUUID(), "John", "Doe"),
+                person(new UUID(0, 0), "Zoë \"Z\"", "O'Brien\\\n"),
+                person(new UUID(-1, -1), "李", "😀"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        writer.writeArray(persons, out);
+
+        // Byte for byte, including how Jackson's UTF-8 output escapes characters outside the BMP
+        assertEquals(new String(objectMapper.writeValueAsBytes(persons.stream().map(mapper::toDTO).toList()),
+                StandardCharsets.UTF_8), out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testProjectedArrayLeavesOutNullFields() throws IOException {
+        UUID id = UUID.randomUUID();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        writer.writeDTOArray(MediaType.APPLICATION_JSON, List.of(new PersonDTO(id, null, "Doe"), new PersonDTO(null, "Jane", null)), out);
+
+        assertEquals("[{\"id\":\"" + id + "\",\"lastName\":\"Doe\"},{\"firstName\":\"Jane\"}]",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testLinesWritesOneObjectPerLine() throws IOException {
+        Person john = person(UUID.randomUUID(), "John", "Doe");
+        Person jane = person(UUID.randomUUID(), "Jane", "Smith");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        writer.writeLines((Consumer<Person> consumer) -> {
+            consumer.accept(john);
+            consumer.accept(jane);
+        }, out);
+
+        assertEquals(objectMapper.writeValueAsString(mapper.toDTO(john)) + "\n"
+                + objectMapper.writeValueAsString(mapper.toDTO(jane)) + "\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testEmptyArray() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        writer.writeArray(List.of(), out);
+
+        assertEquals("[]", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testBinaryFormatsCarryIdsAsBinaryAndReadBackAsDTOs() throws IOException {
+        List<Person> persons = List.of(person(UUID.randomUUID(), "John", "Doe"), person(UUID.randomUUID(), "Zoë", "李"));
+        List<PersonDTO> expected = persons.stream().map(mapper::toDTO).toList();
+
+        for (ObjectMapper binaryMapper : List.of(new ObjectMapper(new CBORFactory()), new ObjectMapper(new SmileFactory()))) {
+            MediaType mediaType = binaryMapper.getFactory() instanceof CBORFactory
+                    ? MediaType.APPLICATION_CBOR : PersonJsonWriter.APPLICATION_SMILE;
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+            writer.writeArray(mediaType, persons, out);
+
+            assertTrue(binaryMapper.readTree(out.toByteArray()).get(0).get("id").isBinary(), mediaType.toString());
+            assertEquals(expected, binaryMapper.readValue(out.toByteArray(), new TypeReference<List<PersonDTO>>() {
+            }));
+        }
+    }
+
+    @Test
+    public void testNegotiatePicksTheFirstAcceptedSupportedType() {
+        assertEquals(MediaType.APPLICATION_JSON, writer.negotiate(List.of(MediaType.ALL)).orElseThrow());
+        assertEquals(MediaType.APPLICATION_CBOR, writer.negotiate(
+                List.of(MediaType.APPLICATION_CBOR, MediaType.APPLICATION_JSON)).orElseThrow());
+        assertEquals(PersonJsonWriter.APPLICATION_SMILE, writer.negotiate(
+                List.of(MediaType.TEXT_HTML, PersonJsonWriter.APPLICATION_SMILE)).orElseThrow());
+        assertEquals(MediaType.APPLICATION_JSON, writer.negotiate(
+                List.of(MediaType.TEXT_HTML, MediaType.parseMediaType("application/*"))).orElseThrow());
+        assertTrue(writer.negotiate(List.of(MediaType.TEXT_PLAIN)).isEmpty());
+    }
+
+    @Test
+    public void testFormatMatchesUuidToString() {
+        char[] buffer = new char[36];
+        for (int i = 0; i < 1000; i++) {
+            UUID id = UUID.randomUUID();
+            PersonJsonWriter.format(id, buffer);
+            assertEquals(id.toString(), new String(buffer));
+        }
+    }
+
+    private static Person person(UUID id, String firstName, String lastName) {
+        Person person = new Person();
+        person.setId(id);
+        person.setFirstName(firstName);
+        person.setLastName(lastName);
+        return person;
+    }
+}
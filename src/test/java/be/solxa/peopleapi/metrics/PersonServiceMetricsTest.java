@@ -0,0 +1,84 @@
+package be.solxa.peopleapi.metrics;
+
+import be.solxa.peopleapi.PeopleApiProperties;
+import be.solxa.peopleapi.cache.PersonCache;
+import be.solxa.peopleapi.cache.PersonGeneration;
+import be.solxa.peopleapi.cache.PersonReadCoalescer;
+import be.solxa.peopleapi.cache.SearchResultCache;
+import be.solxa.peopleapi.model.Person;
+import be.solxa.peopleapi.repository.PersonRepository;
+import be.solxa.peopleapi.search.PersonNameSuggester;
+import be.solxa.peopleapi.search.PersonTrigramIndex;
+import be.solxa.peopleapi.service.PersonService;
+import be.solxa.peopleapi.service.PersonWriteBehind;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PersonServiceMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final PersonRepository personRepository = mock(PersonRepository.class);
+    private PersonService personService;
+
+    @BeforeEach
+    public void setUp() {
+        PeopleApiProperties properties = new PeopleApiProperties();
+        properties.getCache().getSearch().setEnabled(false);
+        PersonService target = new PersonService(personRepository, mock(EntityManager.class), properties,
+                mock(PersonTrigramIndex.class), mock(PersonNameSuggester.class), new PersonCache(properties),
+                new SearchResultCache(properties, new PersonGeneration()),
+                new PersonReadCoalescer(properties, new PersonGeneration()), new PersonGeneration(),
+                mock(PersonWriteBehind.class), mock(ApplicationEventPublisher.class));
+
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new PersonServiceMetrics(registry));
+        personService = factory.getProxy();
+    }
+
+    @Test
+    public void testTimesCallsByOperationAndFilterPresence() {
+        when(personRepository.search(any(), any())).thenReturn(List.of(new Person(), new Person()));
+        when(personRepository.findAll()).thenReturn(List.of());
+        when(personRepository.findById(any())).thenReturn(Optional.empty());
+
+        personService.search(null, "Doe");
+        personService.search("John", null);
+        personService.search(null, null);
+        personService.getPersonById(UUID.randomUUID());
+
+        assertEquals(2, registry.get("people.service").tags("operation", "search", "filtered", "true").timer().count());
+        assertEquals(1, registry.get("people.service").tags("operation", "search", "filtered", "false").timer().count());
+        assertEquals(1, registry.get("people.service").tags("operation", "getPersonById", "filtered", "false").timer().count());
+        assertEquals(4.0, registry.get("people.service.results").tags("operation", "search", "filtered", "true")
+                .summary().totalAmount());
+    }
+
+    @Test
+    public void testFailedCallsAreTimedToo() {
+        when(personRepository.removeById(any())).thenThrow(new IllegalStateException("down"));
+
+        assertThrows(IllegalStateException.class, () -> personService.deletePerson(UUID.randomUUID()));
+
+        assertEquals(1, registry.get("people.service").tags("operation", "deletePerson", "filtered", "false").timer().count());
+    }
+
+    @Test
+    public void testMetersAreRegisteredUpFront() {
+        assertNotNull(registry.find("people.service").tags("operation", "updatePerson", "filtered", "false").timer());
+        assertNull(registry.find("people.service.results").tags("operation", "getPersonById").summary());
+    }
+}
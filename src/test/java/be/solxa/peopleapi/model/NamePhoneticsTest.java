@@ -0,0 +1,40 @@
+package be.solxa.peopleapi.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NamePhoneticsTest {
+
+    @Test
+    public void testSoundAlikeNamesShareACode() {
+        Set<String> smith = NamePhonetics.codes("Smith");
+        Set<String> schmidt = NamePhonetics.codes("Schmidt");
+
+        assertTrue(smith.stream().anyMatch(schmidt::contains));
+        assertTrue(NamePhonetics.matches(smith, NamePhonetics.primary("Schmidt"), NamePhonetics.alternate("Schmidt")));
+    }
+
+    @Test
+    public void testDifferentNamesDoNotMatch() {
+        Set<String> smith = NamePhonetics.codes("Smith");
+
+        assertFalse(NamePhonetics.matches(smith, NamePhonetics.primary("Doe"), NamePhonetics.alternate("Doe")));
+    }
+
+    @Test
+    public void testCaseAccentsAndSpacesDoNotChangeTheCode() {
+        assertEquals(NamePhonetics.primary("Elodie"), NamePhonetics.primary("  ÉLODIE "));
+        assertEquals(NamePhonetics.primary("John"), NamePhonetics.primary("john"));
+    }
+
+    @Test
+    public void testCodesAreBoundedAndNullSafe() {
+        assertTrue(NamePhonetics.primary("Wolfeschlegelsteinhausen").length() <= NamePhonetics.MAX_CODE_LENGTH);
+        assertNull(NamePhonetics.primary(null));
+        assertTrue(NamePhonetics.codes("   ").isEmpty());
+        assertFalse(NamePhonetics.matches(Set.of(), "XMT", "SMT"));
+    }
+}
@@ -0,0 +1,95 @@
+package be.solxa.peopleapi.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UuidV7Test {
+
+    @Test
+    public void testVersionVariantAndTimestamp() {
+        long before = System.currentTimeMillis();
+        UUID uuid = UuidV7.next();
+        long after = System.currentTimeMillis();
+
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertTrue(UuidV7.timestamp(uuid) >= before && UuidV7.timestamp(uuid) <= after);
+    }
+
+    @Test
+    public void testIncreasingWithinOneMillisecond() {
+        UuidV7 generator = new UuidV7(() -> 1_700_000_000_000L);
+
+        UUID previous = generator.generate();
+        for (int i = 0; i < 10_000; i++) {
+            UUID next = generator.generate();
+            assertTrue(compareUnsigned(previous, next) < 0);
+            previous = next;
+        }
+        // 10,000 ids overflow the 12 bit counter, which carries into the timestamp
+        assertTrue(UuidV7.timestamp(previous) > 1_700_000_000_000L);
+    }
+
+    @Test
+    public void testIncreasingWhenClockStepsBack() {
+        AtomicLong clock = new AtomicLong(1_700_000_000_000L);
+        UuidV7 generator = new UuidV7(clock::get);
+
+        UUID first = generator.generate();
+        clock.addAndGet(-5_000);
+        UUID second = generator.generate();
+
+        assertTrue(compareUnsigned(first, second) < 0);
+        assertEquals(UuidV7.timestamp(first), UuidV7.timestamp(second));
+    }
+
+    @Test
+    public void testUniqueAndOrderedAcrossThreads() throws Exception {
+        UuidV7 generator = new UuidV7(System::currentTimeMillis);
+        int threads = 8;
+        int perThread = 50_000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<UUID>>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    List<UUID> ids = new ArrayList<>(perThread);
+                    for (int i = 0; i < perThread; i++) {
+                        ids.add(generator.generate());
+                    }
+                    return ids;
+                }));
+            }
+
+            Set<UUID> all = new HashSet<>();
+            for (Future<List<UUID>> future : futures) {
+                List<UUID> ids = future.get();
+                for (int i = 1; i < ids.size(); i++) {
+                    assertTrue(compareUnsigned(ids.get(i - 1), ids.get(i)) < 0);
+                }
+                all.addAll(ids);
+            }
+            assertEquals(threads * perThread, all.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Byte order, as databases compare UUIDs; UUID.compareTo compares signed longs
+    private static int compareUnsigned(UUID a, UUID b) {
+        int msb = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return msb != 0 ? msb : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+}
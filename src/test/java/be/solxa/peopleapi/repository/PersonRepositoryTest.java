@@ -1,11 +1,17 @@
 package be.solxa.peopleapi.repository;
 
+import be.solxa.peopleapi.dto.PersonDTO;
+import be.solxa.peopleapi.dto.PersonField;
+import be.solxa.peopleapi.model.NamePhonetics;
 import be.solxa.peopleapi.model.Person;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 
+import java.util.EnumSet;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -151,4 +157,384 @@ public class PersonRepositoryTest {
         assertEquals("John", result.getFirst().getFirstName());
         assertEquals("Smith", result.getFirst().getLastName());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSearchFirstPageOrderedByName() {
+        // Given
+        Person person1 = new Person();
+        person1.setFirstName("John");
+        person1.setLastName("Smith");
+        entityManager.persist(person1);
+
+        Person person2 = new Person();
+        person2.setFirstName("Jane");
+        person2.setLastName("Doe");
+        entityManager.persist(person2);
+
+        Person person3 = new Person();
+        person3.setFirstName("Alice");
+        person3.setLastName("Smith");
+        entityManager.persist(person3);
+
+        entityManager.flush();
+
+        // When
+        Slice<Person> result = personRepository.searchFirstPage(null, null, PageRequest.ofSize(2));
+
+        // Then
+        assertEquals(2, result.getContent().size());
+        assertTrue(result.hasNext());
+        assertEquals("Doe", result.getContent().get(0).getLastName());
+        assertEquals("Alice", result.getContent().get(1).getFirstName());
+    }
+
+    @Test
+    public void testSearchPageAfterSeeksPastCursor() {
+        // Given
+        Person person1 = new Person();
+        person1.setFirstName("John");
+        person1.setLastName("Smith");
+        entityManager.persist(person1);
+
+        Person person2 = new Person();
+        person2.setFirstName("Jane");
+        person2.setLastName("Doe");
+        entityManager.persist(person2);
+
+        Person person3 = new Person();
+        person3.setFirstName("Alice");
+        person3.setLastName("Smith");
+        entityManager.persist(person3);
+
+        entityManager.flush();
+
+        // When
+        Slice<Person> result = personRepository.searchPageAfter(null, null,
+                "Smith", "Alice", person3.getId(), PageRequest.ofSize(2));
+
+        // Then
+        assertEquals(1, result.getContent().size());
+        assertFalse(result.hasNext());
+        assertEquals("John", result.getContent().getFirst().getFirstName());
+    }
+
+    @Test
+    public void testSearchPageAfterAppliesFilters() {
+        // Given
+        Person person1 = new Person();
+        person1.setFirstName("John");
+        person1.setLastName("Doe");
+        entityManager.persist(person1);
+
+        Person person2 = new Person();
+        person2.setFirstName("Jane");
+        person2.setLastName("Smith");
+        entityManager.persist(person2);
+
+        Person person3 = new Person();
+        person3.setFirstName("Johnny");
+        person3.setLastName("Walker");
+        entityManager.persist(person3);
+
+        entityManager.flush();
+
+        // When
+        Slice<Person> result = personRepository.searchPageAfter("john", null,
+                "Doe", "John", person1.getId(), PageRequest.ofSize(10));
+
+        // Then
+        assertEquals(1, result.getContent().size());
+        assertEquals("Walker", result.getContent().getFirst().getLastName());
+    }
+
+    @Test
+    public void testSearchIgnoresAccents() {
+        // Given
+        Person person1 = new Person();
+        person1.setFirstName("Élodie");
+        person1.setLastName("Müller");
+        entityManager.persist(person1);
+
+        Person person2 = new Person();
+        person2.setFirstName("Alice");
+        person2.setLastName("Johnson");
+        entityManager.persist(person2);
+
+        entityManager.flush();
+
+        // When
+        List<Person> result = personRepository.search("elo", "mull");
+
+        // Then
+        assertEquals(1, result.size());
+        assertEquals("Élodie", result.getFirst().getFirstName());
+        assertEquals("elodie", result.getFirst().getFirstNameSearch());
+    }
+
+    @Test
+    public void testSearchByLastNamePrefix() {
+        // Given
+        Person person1 = new Person();
+        person1.setFirstName("John");
+        person1.setLastName("Smith");
+        entityManager.persist(person1);
+
+        Person person2 = new Person();
+        person2.setFirstName("Jane");
+        person2.setLastName("Smithers");
+        entityManager.persist(person2);
+
+        Person person3 = new Person();
+        person3.setFirstName("Alice");
+        person3.setLastName("Goldsmith");
+        entityManager.persist(person3);
+
+        entityManager.flush();
+
+        // When
+        List<Person> result = personRepository.searchByLastNamePrefix("smith", "smiti");
+
+        // Then
+        assertEquals(2, result.size());
+        assertTrue(result.stream().noneMatch(p -> p.getLastName().equals("Goldsmith")));
+    }
+
+    @Test
+    public void testSearchByNamePrefixes() {
+        // Given
+        Person person1 = new Person();
+        person1.setFirstName("John");
+        person1.setLastName("Smith");
+        entityManager.persist(person1);
+
+        Person person2 = new Person();
+        person2.setFirstName("Jane");
+        person2.setLastName("Smith");
+        entityManager.persist(person2);
+
+        entityManager.flush();
+
+        // When
+        List<Person> result = personRepository.searchByNamePrefixes("jo", "jp", "sm", "sn");
+
+        // Then
+        assertEquals(1, result.size());
+        assertEquals("John", result.getFirst().getFirstName());
+    }
+
+    @Test
+    public void testUpdateByIdWritesSearchColumns() {
+        // Given
+        Person person = new Person();
+        person.setFirstName("John");
+        person.setLastName("Smith");
+        entityManager.persist(person);
+        entityManager.flush();
+
+        Person details = new Person();
+        details.setFirstName("Jean");
+        details.setLastName("Dupré");
+        details.normalizeSearchColumns();
+
+        // When
+        int updated = personRepository.updateById(person.getId(), details);
+        entityManager.clear();
+
+        // Then
+        assertEquals(1, updated);
+        assertEquals(1, personRepository.search(null, "dupre").size());
+    }
+
+    @Test
+    public void testCountMatchingAndFacets() {
+        // Given
+        String[][] names = {{"John", "Smith"}, {"Jane", "Smith"}, {"John", "Smithers"}, {"John", "Doe"}, {"Élodie", "Smith"}};
+        for (String[] name : names) {
+            Person person = new Person();
+            person.setFirstName(name[0]);
+            person.setLastName(name[1]);
+            entityManager.persist(person);
+        }
+        entityManager.flush();
+
+        // When
+        long smiths = personRepository.countMatching(null, "smith");
+        long johnSmiths = personRepository.countMatching("john", "smith");
+        List<NameCount> lastNames = personRepository.facetLastNames(null, "smith", PageRequest.ofSize(1));
+        List<NameCount> firstNames = personRepository.facetFirstNames(null, null, PageRequest.ofSize(10));
+
+        // Then
+        assertEquals(4, smiths);
+        assertEquals(2, johnSmiths);
+        assertEquals(1, lastNames.size());
+        assertEquals("Smith", lastNames.getFirst().getName());
+        assertEquals(3, lastNames.getFirst().getOccurrences());
+        assertEquals(3, firstNames.size());
+        assertEquals("John", firstNames.getFirst().getName());
+        assertEquals(3, firstNames.getFirst().getOccurrences());
+    }
+
+    @Test
+    public void testSearchByLastNamePhoneticMatchesEitherCode() {
+        // Given
+        Person person1 = new Person();
+        person1.setFirstName("John");
+        person1.setLastName("Schmidt");
+        entityManager.persist(person1);
+
+        Person person2 = new Person();
+        person2.setFirstName("Jane");
+        person2.setLastName("Doe");
+        entityManager.persist(person2);
+
+        entityManager.flush();
+
+        // When: Smith's alternate code is Schmidt's primary one
+        List<Person> primary = personRepository.searchByLastNamePhonetic(NamePhonetics.codes("Smith"));
+        List<Person> alternate = personRepository.searchByLastNamePhoneticAlt(NamePhonetics.codes("Smith"));
+
+        // Then
+        assertEquals(1, primary.size());
+        assertEquals("Schmidt", primary.getFirst().getLastName());
+        assertTrue(alternate.isEmpty());
+    }
+
+    @Test
+    public void testUpdateByIdWritesPhoneticColumns() {
+        // Given
+        Person person = new Person();
+        person.setFirstName("John");
+        person.setLastName("Doe");
+        entityManager.persist(person);
+        entityManager.flush();
+
+        Person details = new Person();
+        details.setFirstName("John");
+        details.setLastName("Schmidt");
+        details.normalizeSearchColumns();
+
+        // When
+        personRepository.updateById(person.getId(), details);
+        entityManager.clear();
+
+        // Then
+        assertEquals(1, personRepository.searchByLastNamePhonetic(NamePhonetics.codes("Smith")).size());
+        assertTrue(personRepository.searchByLastNamePhonetic(NamePhonetics.codes("Doe")).isEmpty());
+    }
+
+    @Test
+    public void testUpdatePhoneticFillsMissingCodesOnlyForUnchangedNames() {
+        // Given: a row written before the phonetic columns existed
+        Person person = new Person();
+        person.setFirstName("John");
+        person.setLastName("Schmidt");
+        entityManager.persist(person);
+        entityManager.flush();
+        entityManager.getEntityManager()
+                .createQuery("UPDATE Person p SET p.lastNamePhonetic = NULL, p.lastNamePhoneticAlt = NULL")
+                .executeUpdate();
+        List<PersonNames> missing = personRepository.findWithoutPhonetic(null, PageRequest.ofSize(10));
+
+        Person outdated = new Person();
+        outdated.setId(person.getId());
+        outdated.setFirstName("John");
+        outdated.setLastName("Smith");
+        outdated.normalizeSearchColumns();
+
+        Person codes = new Person();
+        codes.setId(person.getId());
+        codes.setFirstName("John");
+        codes.setLastName("Schmidt");
+        codes.normalizeSearchColumns();
+
+        // When
+        int skipped = personRepository.updatePhonetic(outdated);
+        int updated = personRepository.updatePhonetic(codes);
+        entityManager.clear();
+
+        // Then
+        assertEquals(1, missing.size());
+        assertEquals(person.getId(), missing.getFirst().getId());
+        assertEquals(0, skipped);
+        assertEquals(1, updated);
+        assertTrue(personRepository.findWithoutPhonetic(null, PageRequest.ofSize(10)).isEmpty());
+        assertEquals(person.getVersion(), personRepository.findById(person.getId()).orElseThrow().getVersion());
+    }
+
+    @Test
+    public void testUpdateByIdAndVersionOnlyMatchesCurrentVersion() {
+        // Given
+        Person person = new Person();
+        person.setFirstName("John");
+        person.setLastName("Smith");
+        entityManager.persist(person);
+        entityManager.flush();
+        long version = person.getVersion();
+
+        Person details = new Person();
+        details.setFirstName("Jean");
+        details.setLastName("Smith");
+        details.normalizeSearchColumns();
+
+        // When
+        int first = personRepository.updateByIdAndVersion(person.getId(), version, details);
+        int second = personRepository.updateByIdAndVersion(person.getId(), version, details);
+        entityManager.clear();
+
+        // Then
+        assertEquals(1, first);
+        assertEquals(0, second);
+        assertEquals(version + 1, personRepository.findById(person.getId()).orElseThrow().getVersion());
+    }
+
+    @Test
+    public void testSearchProjectedSelectsOnlyRequestedFields() {
+        // Given
+        Person person = new Person();
+        person.setFirstName("Jean");
+        person.setLastName("Dupré");
+        entityManager.persist(person);
+
+        Person other = new Person();
+        other.setFirstName("John");
+        other.setLastName("Smith");
+        entityManager.persist(other);
+        entityManager.flush();
+        entityManager.clear();
+
+        // When
+        List<PersonDTO> result = personRepository.searchProjected(
+                EnumSet.of(PersonField.ID, PersonField.LAST_NAME), null, "dupre");
+
+        // Then
+        assertEquals(1, result.size());
+        assertEquals(person.getId(), result.getFirst().getId());
+        assertEquals("Dupré", result.getFirst().getLastName());
+        assertNull(result.getFirst().getFirstName());
+    }
+
+    @Test
+    public void testSearchProjectedByPrefix() {
+        // Given
+        Person person = new Person();
+        person.setFirstName("John");
+        person.setLastName("Doe");
+        entityManager.persist(person);
+
+        Person other = new Person();
+        other.setFirstName("Jane");
+        other.setLastName("Doe");
+        entityManager.persist(other);
+        entityManager.flush();
+
+        // When
+        List<PersonDTO> result = personRepository.searchProjectedByPrefix(
+                EnumSet.allOf(PersonField.class), "jo", "jp", "do", "dp");
+
+        // Then
+        assertEquals(1, result.size());
+        assertEquals("John", result.getFirst().getFirstName());
+        assertEquals("Doe", result.getFirst().getLastName());
+        assertEquals(person.getId(), result.getFirst().getId());
+    }
+}
@@ -0,0 +1,112 @@
+package be.solxa.peopleapi.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NameTrieTest {
+
+    private final NameTrie trie = new NameTrie(16);
+
+    @Test
+    public void testTopReturnsMostCommonCompletionsFirst() {
+        add("smith", "Smith", 3);
+        add("smithers", "Smithers", 1);
+        add("smyth", "Smyth", 2);
+        add("doe", "Doe", 5);
+
+        assertEquals(List.of(
+                new NameTrie.Suggestion("Smith", 3),
+                new NameTrie.Suggestion("Smyth", 2),
+                new NameTrie.Suggestion("Smithers", 1)), trie.top("sm", 10));
+        assertEquals(List.of(new NameTrie.Suggestion("Smith", 3)), trie.top("smi", 1));
+        assertEquals(List.of(new NameTrie.Suggestion("Doe", 5)), trie.top("", 1));
+    }
+
+    @Test
+    public void testPrefixEndingInsideAnEdge() {
+        add("smithers", "Smithers", 1);
+
+        assertEquals(List.of(new NameTrie.Suggestion("Smithers", 1)), trie.top("smith", 5));
+        assertEquals(List.of(), trie.top("smiths", 5));
+        assertEquals(List.of(), trie.top("x", 5));
+    }
+
+    @Test
+    public void testUpdateMovesAndDeleteDropsTheOccurrence() {
+        UUID id = UUID.randomUUID();
+        trie.put(id, "smith", "Smith");
+        add("smyth", "Smyth", 1);
+
+        trie.put(id, "smythe", "Smythe");
+        assertEquals(List.of(new NameTrie.Suggestion("Smyth", 1), new NameTrie.Suggestion("Smythe", 1)),
+                trie.top("sm", 10));
+
+        trie.remove(id);
+        trie.remove(id);
+        assertEquals(List.of(new NameTrie.Suggestion("Smyth", 1)), trie.top("sm", 10));
+        assertEquals(1, trie.persons());
+    }
+
+    @Test
+    public void testSplittingKeepsExistingCounts() {
+        add("smithers", "Smithers", 2);
+        add("smith", "Smith", 1);
+        add("sm", "Sm", 1);
+
+        assertEquals(List.of(new NameTrie.Suggestion("Smithers", 2)), trie.top("s", 1));
+        assertEquals(3, trie.top("s", 10).size());
+        assertEquals(List.of(new NameTrie.Suggestion("Smithers", 2), new NameTrie.Suggestion("Smith", 1)),
+                trie.top("smith", 10));
+    }
+
+    @Test
+    public void testMatchesBruteForceAfterRandomChanges() {
+        Random random = new Random(42);
+        String[] names = {"a", "ab", "abc", "abd", "b", "ba", "bab", "babc", "c", "ca"};
+        Map<UUID, String> current = new HashMap<>();
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            if (!ids.isEmpty() && random.nextInt(4) == 0) {
+                UUID id = ids.get(random.nextInt(ids.size()));
+                trie.remove(id);
+                current.remove(id);
+            } else {
+                UUID id = ids.isEmpty() || random.nextBoolean() ? UUID.randomUUID() : ids.get(random.nextInt(ids.size()));
+                String name = names[random.nextInt(names.length)];
+                trie.put(id, name, name);
+                current.put(id, name);
+                ids.add(id);
+            }
+        }
+
+        for (String prefix : new String[]{"", "a", "ab", "b", "ba", "c", "x"}) {
+            Map<String, Long> expected = current.values().stream()
+                    .filter(name -> name.startsWith(prefix))
+                    .collect(Collectors.groupingBy(name -> name, Collectors.counting()));
+            List<NameTrie.Suggestion> top = trie.top(prefix, 3);
+            assertEquals(Math.min(3, expected.size()), top.size());
+            long third = expected.values().stream().sorted(Comparator.reverseOrder()).skip(Math.max(0, top.size() - 1))
+                    .findFirst().orElse(0L);
+            for (NameTrie.Suggestion suggestion : top) {
+                assertEquals(expected.get(suggestion.name()).intValue(), suggestion.count());
+                assertTrue(suggestion.count() >= third);
+            }
+        }
+    }
+
+    private void add(String key, String name, int count) {
+        for (int i = 0; i < count; i++) {
+            trie.put(UUID.randomUUID(), key, name);
+        }
+    }
+}
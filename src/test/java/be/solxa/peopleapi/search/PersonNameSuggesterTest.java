@@ -0,0 +1,78 @@
+package be.solxa.peopleapi.search;
+
+import be.solxa.peopleapi.PeopleApiProperties;
+import be.solxa.peopleapi.dto.PersonField;
+import be.solxa.peopleapi.event.PersonChangedEvent;
+import be.solxa.peopleapi.model.Person;
+import be.solxa.peopleapi.repository.PersonRepository;
+import be.solxa.peopleapi.repository.VersionedPersonNames;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PersonNameSuggesterTest {
+
+    private final PersonRepository personRepository = mock(PersonRepository.class);
+    private final UUID id = UUID.randomUUID();
+
+    private PersonNameSuggester suggester;
+
+    private record Row(UUID getId, String getFirstName, String getLastName, Long getVersion)
+            implements VersionedPersonNames {
+    }
+
+    @BeforeEach
+    public void setUp() {
+        when(personRepository.count()).thenReturn(1L);
+        when(personRepository.streamNames()).thenReturn(Stream.of(new Row(id, "John", "Doe", 0L)));
+        suggester = new PersonNameSuggester(personRepository, mock(PlatformTransactionManager.class),
+                new PeopleApiProperties());
+        suggester.rebuild();
+    }
+
+    @Test
+    public void testLaterUpdateWinsWhenListenersRunOutOfOrder() {
+        // Committed as version 1 then 2, their listeners ran the other way round
+        suggester.onPersonChanged(PersonChangedEvent.updated(person("Smyth", 2L)));
+        suggester.onPersonChanged(PersonChangedEvent.updated(person("Smith", 1L)));
+
+        assertEquals(List.of(new NameTrie.Suggestion("Smyth", 1)), lastNames());
+    }
+
+    @Test
+    public void testUpdateAfterDeleteDoesNotBringPersonBack() {
+        suggester.onPersonChanged(PersonChangedEvent.deleted(id));
+        suggester.onPersonChanged(PersonChangedEvent.updated(person("Smith", 1L)));
+
+        assertEquals(List.of(), lastNames());
+    }
+
+    @Test
+    public void testChangeAlreadyReadByRebuildIsIgnored() {
+        suggester.onPersonChanged(PersonChangedEvent.created(person("Doe", 0L)));
+        suggester.onPersonChanged(PersonChangedEvent.updated(person("Smith", 1L)));
+
+        assertEquals(List.of(new NameTrie.Suggestion("Smith", 1)), lastNames());
+    }
+
+    private List<NameTrie.Suggestion> lastNames() {
+        return suggester.suggest(PersonField.LAST_NAME, "", 10).orElseThrow();
+    }
+
+    private Person person(String lastName, Long version) {
+        Person person = new Person();
+        person.setId(id);
+        person.setFirstName("John");
+        person.setLastName(lastName);
+        person.setVersion(version);
+        return person;
+    }
+}
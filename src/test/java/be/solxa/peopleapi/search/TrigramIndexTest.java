@@ -0,0 +1,154 @@
+package be.solxa.peopleapi.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrigramIndexTest {
+
+    @Test
+    public void testSearchByFirstName() {
+        UUID john = UUID.randomUUID();
+        UUID johanna = UUID.randomUUID();
+        UUID alice = UUID.randomUUID();
+        TrigramIndex index = TrigramIndex.build(4, List.of(
+                new TrigramIndex.Entry(john, "john", "doe"),
+                new TrigramIndex.Entry(johanna, "johanna", "smith"),
+                new TrigramIndex.Entry(alice, "alice", "johnson")));
+
+        Optional<List<UUID>> result = index.search("joh", null, 100);
+
+        assertTrue(result.isPresent());
+        assertEquals(Set.of(john, johanna), new HashSet<>(result.get()));
+    }
+
+    @Test
+    public void testSearchVerifiesWholeFilter() {
+        UUID anna = UUID.randomUUID();
+        // Contains every trigram of "annan" ("ann", "nna", "nan") but not the word itself
+        UUID nannan = UUID.randomUUID();
+        TrigramIndex index = TrigramIndex.build(2, List.of(
+                new TrigramIndex.Entry(anna, "annan", "doe"),
+                new TrigramIndex.Entry(nannan, "nanna", "doe")));
+
+        Optional<List<UUID>> result = index.search("annan", null, 100);
+
+        assertEquals(List.of(anna), result.orElseThrow());
+    }
+
+    @Test
+    public void testSearchByBothNames() {
+        UUID johnSmith = UUID.randomUUID();
+        UUID johnDoe = UUID.randomUUID();
+        TrigramIndex index = TrigramIndex.build(4, List.of(
+                new TrigramIndex.Entry(johnSmith, "john", "smith"),
+                new TrigramIndex.Entry(johnDoe, "john", "doe")));
+
+        // The two letter first name filter is checked during verification only
+        Optional<List<UUID>> result = index.search("jo", "mit", 100);
+
+        assertEquals(List.of(johnSmith), result.orElseThrow());
+    }
+
+    @Test
+    public void testSearchWithoutFullTrigramCannotAnswer() {
+        TrigramIndex index = TrigramIndex.build(1, List.of(
+                new TrigramIndex.Entry(UUID.randomUUID(), "john", "doe")));
+
+        assertFalse(index.search("jo", "do", 100).isPresent());
+    }
+
+    @Test
+    public void testSearchGivesUpAboveMaxResults() {
+        List<TrigramIndex.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            entries.add(new TrigramIndex.Entry(UUID.randomUUID(), "john" + i, "doe"));
+        }
+        TrigramIndex index = TrigramIndex.build(2, entries);
+
+        assertFalse(index.search("john", null, 5).isPresent());
+        assertEquals(10, index.search("john", null, 10).orElseThrow().size());
+    }
+
+    @Test
+    public void testUpsertAndRemove() {
+        UUID id = UUID.randomUUID();
+        TrigramIndex index = new TrigramIndex(4);
+
+        index.upsert(id, "john", "doe");
+        assertEquals(List.of(id), index.search("joh", null, 100).orElseThrow());
+
+        index.upsert(id, "jane", "doe");
+        assertTrue(index.search("joh", null, 100).orElseThrow().isEmpty());
+        assertEquals(List.of(id), index.search("jan", null, 100).orElseThrow());
+
+        index.remove(id);
+        assertTrue(index.search("jan", null, 100).orElseThrow().isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testLaterVersionWinsWhenChangesArriveOutOfOrder() {
+        UUID id = UUID.randomUUID();
+        TrigramIndex index = new TrigramIndex(4);
+
+        index.upsert(id, "john", "smyth", 2L);
+        index.upsert(id, "john", "smith", 1L);
+
+        assertEquals(List.of(id), index.search(null, "smyth", 100).orElseThrow());
+        assertTrue(index.search(null, "smith", 100).orElseThrow().isEmpty());
+    }
+
+    @Test
+    public void testUpsertAfterRemoveDoesNotBringPersonBack() {
+        UUID id = UUID.randomUUID();
+        TrigramIndex index = new TrigramIndex(4);
+        index.upsert(id, "john", "doe", 0L);
+
+        index.remove(id);
+        index.upsert(id, "john", "smith", 1L);
+        index.upsert(id, "john", "smith");
+
+        assertTrue(index.search(null, "smith", 100).orElseThrow().isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testChangeAlreadyBuiltIsIgnored() {
+        UUID id = UUID.randomUUID();
+        TrigramIndex index = TrigramIndex.build(4, List.of(new TrigramIndex.Entry(id, "john", "smith", 1L)));
+
+        // Replayed after the rebuild had already read version 1
+        index.upsert(id, "john", "doe", 0L);
+        index.upsert(id, "john", "smith", 1L);
+
+        assertEquals(List.of(id), index.search(null, "smith", 100).orElseThrow());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void testCompactionKeepsLiveEntries() {
+        TrigramIndex index = new TrigramIndex(1);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            index.upsert(id, "name" + i, "doe");
+        }
+        for (int i = 0; i < 2500; i++) {
+            index.remove(ids.get(i));
+        }
+
+        assertEquals(500, index.size());
+        assertEquals(List.of(ids.get(2999)), index.search("name2999", null, 100).orElseThrow());
+        assertTrue(index.search("name1", null, 100).orElseThrow().stream()
+                .allMatch(id -> ids.indexOf(id) >= 2500));
+    }
+}
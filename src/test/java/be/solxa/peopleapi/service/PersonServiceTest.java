@@ -1,16 +1,41 @@
 package be.solxa.peopleapi.service;
 
+import be.solxa.peopleapi.PeopleApiProperties;
+import be.solxa.peopleapi.cache.PersonCache;
+import be.solxa.peopleapi.cache.PersonGeneration;
+import be.solxa.peopleapi.cache.PersonReadCoalescer;
+import be.solxa.peopleapi.cache.SearchResultCache;
+import be.solxa.peopleapi.dto.PersonCursor;
+import be.solxa.peopleapi.dto.PersonDTO;
+import be.solxa.peopleapi.dto.PersonField;
+import be.solxa.peopleapi.event.PersonChangedEvent;
+import be.solxa.peopleapi.exception.PersonNotWrittenException;
 import be.solxa.peopleapi.exception.PersonValidationException;
+import be.solxa.peopleapi.exception.PersonVersionConflictException;
+import be.solxa.peopleapi.exception.WriteQueueFullException;
+import be.solxa.peopleapi.model.NamePhonetics;
 import be.solxa.peopleapi.model.Person;
+import be.solxa.peopleapi.repository.NameCount;
 import be.solxa.peopleapi.repository.PersonRepository;
+import be.solxa.peopleapi.search.NameTrie;
+import be.solxa.peopleapi.search.PersonNameSuggester;
+import be.solxa.peopleapi.search.PersonTrigramIndex;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 
 import java.util.*;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -21,6 +46,36 @@ public class PersonServiceTest {
     @Mock
     private PersonRepository personRepository;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Spy
+    private PeopleApiProperties properties = new PeopleApiProperties();
+
+    @Mock
+    private PersonTrigramIndex trigramIndex;
+
+    @Mock
+    private PersonNameSuggester nameSuggester;
+
+    @Spy
+    private PersonCache personCache = new PersonCache(new PeopleApiProperties());
+
+    @Spy
+    private PersonGeneration generation = new PersonGeneration();
+
+    @Spy
+    private SearchResultCache searchResultCache = new SearchResultCache(new PeopleApiProperties(), generation);
+
+    @Spy
+    private PersonReadCoalescer readCoalescer = new PersonReadCoalescer(new PeopleApiProperties(), generation);
+
+    @Mock
+    private PersonWriteBehind writeBehind;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private PersonService personService;
 
@@ -34,6 +89,7 @@ public class PersonServiceTest {
         testPerson.setId(testId);
         testPerson.setFirstName("John");
         testPerson.setLastName("Doe");
+        testPerson.normalizeSearchColumns();
     }
 
     @Test
@@ -52,16 +108,258 @@ public class PersonServiceTest {
     @Test
     public void testSearchWithFilters() {
         List<Person> filteredList = List.of(testPerson);
-        when(personRepository.search("Jo", null)).thenReturn(filteredList);
+        when(personRepository.search("jo", null)).thenReturn(filteredList);
 
         List<Person> result = personService.search("Jo", null);
 
         assertEquals(1, result.size());
         assertEquals("John", result.getFirst().getFirstName());
-        verify(personRepository).search("Jo", null);
+        verify(personRepository).search("jo", null);
         verify(personRepository, never()).findAll();
     }
 
+    @Test
+    public void testSearchServesRepeatedFiltersFromCache() {
+        when(personRepository.search("jo", null)).thenReturn(List.of(testPerson));
+
+        personService.search("Jo", null);
+        List<Person> result = personService.search(" jo", null);
+
+        assertEquals(List.of(testPerson), result);
+        verify(personRepository, times(1)).search("jo", null);
+    }
+
+    @Test
+    public void testSearchPhoneticUnionsCodeColumnsAndChecksFirstName() {
+        Person schmidt = new Person();
+        schmidt.setId(UUID.randomUUID());
+        schmidt.setFirstName("Jon");
+        schmidt.setLastName("Schmidt");
+        schmidt.normalizeSearchColumns();
+        Person otherFirstName = new Person();
+        otherFirstName.setId(UUID.randomUUID());
+        otherFirstName.setFirstName("Mary");
+        otherFirstName.setLastName("Smyth");
+        otherFirstName.normalizeSearchColumns();
+        Set<String> smith = NamePhonetics.codes("Smith");
+        when(personRepository.searchByLastNamePhonetic(smith)).thenReturn(List.of(schmidt, otherFirstName));
+        when(personRepository.searchByLastNamePhoneticAlt(smith)).thenReturn(List.of(schmidt));
+
+        List<Person> result = personService.searchPhonetic("John", "Smith");
+
+        assertEquals(List.of(schmidt), result);
+        verify(personRepository, never()).searchByFirstNamePhonetic(any());
+        verify(personRepository, never()).search(any(), any());
+    }
+
+    @Test
+    public void testSearchPhoneticByFirstNameOnly() {
+        Set<String> john = NamePhonetics.codes("John");
+        when(personRepository.searchByFirstNamePhonetic(john)).thenReturn(List.of(testPerson));
+        when(personRepository.searchByFirstNamePhoneticAlt(john)).thenReturn(List.of());
+
+        List<Person> result = personService.searchPhonetic("Jon", " ");
+
+        assertEquals(List.of(testPerson), result);
+        verify(personRepository, never()).searchByLastNamePhonetic(any());
+    }
+
+    @Test
+    public void testCountNormalizesFiltersAndCountsInDatabase() {
+        when(personRepository.countMatching(null, "doe")).thenReturn(7L);
+
+        assertEquals(7L, personService.count(null, " Doe"));
+        verify(personRepository, never()).search(any(), any());
+    }
+
+    @Test
+    public void testCountWithoutFilters() {
+        when(personRepository.count()).thenReturn(12L);
+
+        assertEquals(12L, personService.count(null, null));
+        verify(personRepository, never()).countMatching(any(), any());
+    }
+
+    @Test
+    public void testFacetsWithoutFiltersUseTrieCounts() {
+        List<NameTrie.Suggestion> counted = List.of(new NameTrie.Suggestion("Doe", 4));
+        when(nameSuggester.suggest(PersonField.LAST_NAME, "", 3)).thenReturn(Optional.of(counted));
+
+        assertEquals(counted, personService.facets(PersonField.LAST_NAME, null, null, 3));
+        verify(personRepository, never()).facetLastNames(any(), any(), any());
+    }
+
+    @Test
+    public void testFacetsWithFiltersGroupInDatabase() {
+        NameCount john = mock(NameCount.class);
+        when(john.getName()).thenReturn("John");
+        when(john.getOccurrences()).thenReturn(2L);
+        when(personRepository.facetFirstNames(null, "doe", PageRequest.ofSize(3))).thenReturn(List.of(john));
+
+        List<NameTrie.Suggestion> result = personService.facets(PersonField.FIRST_NAME, null, "Doe", 3);
+
+        assertEquals(List.of(new NameTrie.Suggestion("John", 2)), result);
+        verify(nameSuggester, never()).suggest(any(), any(), anyInt());
+    }
+
+    @Test
+    public void testSuggestServedFromTries() {
+        List<NameTrie.Suggestion> suggestions = List.of(new NameTrie.Suggestion("Smith", 3));
+        when(nameSuggester.suggest(PersonField.LAST_NAME, "Sm", 5)).thenReturn(Optional.of(suggestions));
+
+        assertEquals(suggestions, personService.suggest(PersonField.LAST_NAME, "Sm", 5));
+        verify(personRepository, never()).countLastNamesByPrefix(any(), any(), any());
+    }
+
+    @Test
+    public void testSuggestFallsBackToPrefixRangeUntilTriesAreBuilt() {
+        NameCount smith = mock(NameCount.class);
+        when(smith.getName()).thenReturn("Smith");
+        when(smith.getOccurrences()).thenReturn(3L);
+        when(nameSuggester.suggest(PersonField.FIRST_NAME, " Sm", 5)).thenReturn(Optional.empty());
+        when(personRepository.countFirstNamesByPrefix("sm", "sn", PageRequest.ofSize(5))).thenReturn(List.of(smith));
+
+        List<NameTrie.Suggestion> result = personService.suggest(PersonField.FIRST_NAME, " Sm", 5);
+
+        assertEquals(List.of(new NameTrie.Suggestion("Smith", 3)), result);
+    }
+
+    @Test
+    public void testSearchProjectedByPrefixUsesRange() {
+        Set<PersonField> fields = EnumSet.of(PersonField.ID);
+        List<PersonDTO> dtos = List.of(new PersonDTO(testId, null, null));
+        when(personRepository.searchProjectedByPrefix(fields, null, null, "do", "dp")).thenReturn(dtos);
+
+        List<PersonDTO> result = personService.searchProjected(null, " Dô", SearchMode.PREFIX, fields);
+
+        assertEquals(dtos, result);
+        verify(personRepository, never()).searchProjected(any(), any(), any());
+    }
+
+    @Test
+    public void testSearchUsesTrigramCandidates() {
+        Person staleCandidate = new Person();
+        staleCandidate.setId(UUID.randomUUID());
+        staleCandidate.setFirstName("Alice");
+        staleCandidate.setLastName("Smith");
+        staleCandidate.normalizeSearchColumns();
+
+        List<UUID> candidates = List.of(testId, staleCandidate.getId());
+        when(trigramIndex.search("joh", null)).thenReturn(Optional.of(candidates));
+        when(personRepository.findAllById(candidates)).thenReturn(List.of(testPerson, staleCandidate));
+
+        List<Person> result = personService.search("Joh", null);
+
+        assertEquals(List.of(testPerson), result);
+        verify(personRepository, never()).search(any(), any());
+    }
+
+    @Test
+    public void testSearchNormalizesFilters() {
+        when(personRepository.search("elo", "muller")).thenReturn(List.of(testPerson));
+
+        List<Person> result = personService.search("  Élo ", "MÜLLER");
+
+        assertEquals(1, result.size());
+    }
+
+    @Test
+    public void testSearchByFirstNamePrefix() {
+        when(personRepository.searchByFirstNamePrefix("jo", "jp")).thenReturn(List.of(testPerson));
+
+        List<Person> result = personService.searchByPrefix("Jo", null);
+
+        assertEquals(1, result.size());
+        verify(personRepository, never()).search(any(), any());
+    }
+
+    @Test
+    public void testSearchByBothPrefixes() {
+        when(personRepository.searchByNamePrefixes("jo", "jp", "do", "dp")).thenReturn(List.of(testPerson));
+
+        List<Person> result = personService.searchByPrefix("Jo", "Do");
+
+        assertEquals(1, result.size());
+    }
+
+    @Test
+    public void testSearchByPrefixWithoutFiltersReturnsAll() {
+        when(personRepository.findAll()).thenReturn(List.of(testPerson));
+
+        List<Person> result = personService.searchByPrefix(null, " ");
+
+        assertEquals(1, result.size());
+        verify(personRepository, never()).searchByLastNamePrefix(any(), any());
+    }
+
+    @Test
+    public void testSearchPageWithoutCursor() {
+        Slice<Person> page = new SliceImpl<>(List.of(testPerson), PageRequest.ofSize(1), true);
+        when(personRepository.searchFirstPage(null, "do", PageRequest.ofSize(1))).thenReturn(page);
+
+        Slice<Person> result = personService.searchPage(null, "Do", null, 1);
+
+        assertEquals(1, result.getContent().size());
+        assertTrue(result.hasNext());
+        verify(personRepository, never()).searchPageAfter(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testSearchPageWithCursor() {
+        UUID afterId = UUID.randomUUID();
+        PersonCursor cursor = new PersonCursor("Doe", "Jane", afterId);
+        Slice<Person> page = new SliceImpl<>(List.of(testPerson), PageRequest.ofSize(10), false);
+        when(personRepository.searchPageAfter(null, null, "Doe", "Jane", afterId, PageRequest.ofSize(10)))
+                .thenReturn(page);
+
+        Slice<Person> result = personService.searchPage(null, null, cursor, 10);
+
+        assertEquals(1, result.getContent().size());
+        assertFalse(result.hasNext());
+        verify(personRepository, never()).searchFirstPage(any(), any(), any());
+    }
+
+    @Test
+    public void testExportPersonsDetachesEachPerson() {
+        Person otherPerson = new Person();
+        otherPerson.setId(UUID.randomUUID());
+        otherPerson.setFirstName("Jane");
+        otherPerson.setLastName("Smith");
+        when(personRepository.streamAll()).thenReturn(Stream.of(testPerson, otherPerson));
+
+        List<Person> exported = new ArrayList<>();
+        personService.exportPersons(exported::add);
+
+        assertEquals(List.of(testPerson, otherPerson), exported);
+        verify(entityManager).detach(testPerson);
+        verify(entityManager).detach(otherPerson);
+    }
+
+    @Test
+    public void testCachedSearchResultIsDetached() {
+        Person otherPerson = new Person();
+        otherPerson.setId(UUID.randomUUID());
+        otherPerson.setFirstName("Johanna");
+        otherPerson.setLastName("Doe");
+        when(personRepository.search("jo", null)).thenReturn(List.of(testPerson, otherPerson));
+        when(entityManager.contains(testPerson)).thenReturn(true);
+
+        personService.search("Jo", null);
+
+        verify(entityManager).detach(testPerson);
+        verify(entityManager).detach(otherPerson);
+    }
+
+    @Test
+    public void testCoalescedListIsDetached() {
+        when(personRepository.findAll()).thenReturn(List.of(testPerson));
+        when(entityManager.contains(testPerson)).thenReturn(true);
+
+        personService.search(null, null);
+
+        verify(entityManager).detach(testPerson);
+    }
+
     @Test
     public void testGetPersonById() {
         when(personRepository.findById(testId)).thenReturn(Optional.of(testPerson));
@@ -71,6 +369,7 @@ public class PersonServiceTest {
         assertTrue(result.isPresent());
         assertEquals(testId, result.get().getId());
         assertEquals("John", result.get().getFirstName());
+        verify(entityManager).detach(testPerson);
     }
 
     @Test
@@ -101,6 +400,56 @@ public class PersonServiceTest {
         assertEquals("Jane", result.getFirstName());
         assertEquals("Smith", result.getLastName());
         verify(personRepository).save(any(Person.class));
+
+        ArgumentCaptor<PersonChangedEvent> event = ArgumentCaptor.forClass(PersonChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(PersonChangedEvent.Type.CREATED, event.getValue().getType());
+        assertEquals(savedPerson.getId(), event.getValue().getId());
+    }
+
+    @Test
+    public void testGetPersonByIdReturnsQueuedPerson() {
+        when(writeBehind.pending(testId)).thenReturn(Optional.of(testPerson));
+
+        Optional<Person> result = personService.getPersonById(testId);
+
+        assertEquals(Optional.of(testPerson), result);
+        verify(personRepository, never()).findById(any());
+    }
+
+    @Test
+    public void testAcceptPersonAssignsIdAndQueues() {
+        Person newPerson = new Person();
+        newPerson.setFirstName("Jane");
+        newPerson.setLastName("Smith");
+
+        Person result = personService.acceptPerson(newPerson);
+
+        assertNotNull(result.getId());
+        verify(writeBehind).enqueue(newPerson);
+        verify(personRepository, never()).save(any(Person.class));
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    public void testAcceptPersonValidatesBeforeQueueing() {
+        Person invalid = new Person();
+        invalid.setFirstName("");
+        invalid.setLastName("Smith");
+
+        assertThrows(PersonValidationException.class, () -> personService.acceptPerson(invalid));
+
+        verify(writeBehind, never()).enqueue(any());
+    }
+
+    @Test
+    public void testAcceptPersonPropagatesFullQueue() {
+        Person newPerson = new Person();
+        newPerson.setFirstName("Jane");
+        newPerson.setLastName("Smith");
+        doThrow(new WriteQueueFullException("Write queue is full, retry later")).when(writeBehind).enqueue(newPerson);
+
+        assertThrows(WriteQueueFullException.class, () -> personService.acceptPerson(newPerson));
     }
 
     @Test
@@ -129,22 +478,85 @@ public class PersonServiceTest {
         verify(personRepository, never()).save(any(Person.class));
     }
 
+    @Test
+    public void testCreatePersonsInsertsValidPersonsInChunks() {
+        properties.getBatch().setChunkSize(1);
+
+        Person jane = new Person();
+        jane.setFirstName("Jane");
+        jane.setLastName("Smith");
+
+        Person invalid = new Person();
+        invalid.setFirstName("");
+        invalid.setLastName("Smith");
+
+        Person alice = new Person();
+        alice.setId(UUID.randomUUID());
+        alice.setFirstName("Alice");
+        alice.setLastName("Johnson");
+
+        List<PersonBatchResult> results = personService.createPersons(List.of(jane, invalid, alice));
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isCreated());
+        assertFalse(results.get(1).isCreated());
+        assertEquals(1, results.get(1).getIndex());
+        assertEquals("First name cannot be empty", results.get(1).getError());
+        assertTrue(results.get(2).isCreated());
+        assertNull(alice.getId());
+        verify(personRepository).saveAll(List.of(jane));
+        verify(personRepository).saveAll(List.of(alice));
+        verify(personRepository, times(2)).flush();
+        verify(entityManager, times(2)).clear();
+    }
+
+    @Test
+    public void testCreatePersonsRejectsNullItem() {
+        Person jane = new Person();
+        jane.setFirstName("Jane");
+        jane.setLastName("Smith");
+
+        List<PersonBatchResult> results = personService.createPersons(Arrays.asList(jane, null));
+
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).isCreated());
+        assertFalse(results.get(1).isCreated());
+        assertEquals(1, results.get(1).getIndex());
+        assertEquals("Person cannot be empty", results.get(1).getError());
+        verify(personRepository).saveAll(List.of(jane));
+    }
+
+    @Test
+    public void testCreatePersonsAllInvalidInsertsNothing() {
+        Person invalid = new Person();
+        invalid.setFirstName("Jane");
+        invalid.setLastName(" ");
+
+        List<PersonBatchResult> results = personService.createPersons(List.of(invalid));
+
+        assertEquals(1, results.size());
+        assertFalse(results.getFirst().isCreated());
+        verify(personRepository, never()).saveAll(any());
+    }
+
     @Test
     public void testUpdatePerson() {
         Person updatedDetails = new Person();
         updatedDetails.setFirstName("John");
         updatedDetails.setLastName("Updated");
 
-        when(personRepository.findById(testId)).thenReturn(Optional.of(testPerson));
-        when(personRepository.save(any(Person.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(personRepository.updateById(testId, updatedDetails)).thenReturn(1);
 
         Optional<Person> result = personService.updatePerson(testId, updatedDetails);
 
         assertTrue(result.isPresent());
         assertEquals(testId, result.get().getId());
+        assertNull(result.get().getVersion());
         assertEquals("John", result.get().getFirstName());
         assertEquals("Updated", result.get().getLastName());
-        verify(personRepository).save(testPerson);
+        assertEquals("updated", updatedDetails.getLastNameSearch());
+        verify(personRepository, never()).findById(any());
+        verify(personRepository, never()).save(any(Person.class));
     }
 
     @Test
@@ -153,32 +565,110 @@ public class PersonServiceTest {
         updatedDetails.setFirstName("John");
         updatedDetails.setLastName("Updated");
 
-        when(personRepository.findById(testId)).thenReturn(Optional.empty());
+        when(personRepository.updateById(testId, updatedDetails)).thenReturn(0);
 
         Optional<Person> result = personService.updatePerson(testId, updatedDetails);
 
         assertFalse(result.isPresent());
-        verify(personRepository, never()).save(any(Person.class));
+    }
+
+    @Test
+    public void testConditionalUpdateReturnsNextVersion() {
+        Person updatedDetails = new Person();
+        updatedDetails.setFirstName("John");
+        updatedDetails.setLastName("Updated");
+
+        when(personRepository.updateByIdAndVersion(testId, 3L, updatedDetails)).thenReturn(1);
+
+        Optional<Person> result = personService.updatePerson(testId, updatedDetails, 3L);
+
+        assertEquals(4L, result.orElseThrow().getVersion());
+        verify(personRepository, never()).updateById(any(), any());
+        verify(personRepository, never()).existsById(any());
+    }
+
+    @Test
+    public void testConditionalUpdateOfChangedPersonConflicts() {
+        Person updatedDetails = new Person();
+        updatedDetails.setFirstName("John");
+        updatedDetails.setLastName("Updated");
+
+        when(personRepository.updateByIdAndVersion(testId, 3L, updatedDetails)).thenReturn(0);
+        when(personRepository.existsById(testId)).thenReturn(true);
+
+        assertThrows(PersonVersionConflictException.class, () -> personService.updatePerson(testId, updatedDetails, 3L));
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    public void testConditionalUpdateOfMissingPersonIsEmpty() {
+        Person updatedDetails = new Person();
+        updatedDetails.setFirstName("John");
+        updatedDetails.setLastName("Updated");
+
+        when(personRepository.updateByIdAndVersion(testId, 3L, updatedDetails)).thenReturn(0);
+        when(personRepository.existsById(testId)).thenReturn(false);
+
+        assertTrue(personService.updatePerson(testId, updatedDetails, 3L).isEmpty());
+    }
+
+    @Test
+    public void testUpdateOfQueuedPersonIsRefused() {
+        Person updatedDetails = new Person();
+        updatedDetails.setFirstName("John");
+        updatedDetails.setLastName("Updated");
+
+        when(writeBehind.pending(testId)).thenReturn(Optional.of(testPerson));
+
+        assertThrows(PersonNotWrittenException.class, () -> personService.updatePerson(testId, updatedDetails));
+        verify(personRepository, never()).updateById(any(), any());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    public void testUpdatePersonWithEmptyLastName() {
+        Person invalidDetails = new Person();
+        invalidDetails.setFirstName("John");
+        invalidDetails.setLastName("");
+
+        assertThrows(PersonValidationException.class, () -> {
+            personService.updatePerson(testId, invalidDetails);
+        });
+
+        verify(personRepository, never()).updateById(any(), any());
     }
 
     @Test
     public void testDeletePerson() {
-        when(personRepository.findById(testId)).thenReturn(Optional.of(testPerson));
-        doNothing().when(personRepository).delete(testPerson);
+        when(personRepository.removeById(testId)).thenReturn(1);
 
         boolean result = personService.deletePerson(testId);
 
         assertTrue(result);
-        verify(personRepository).delete(testPerson);
+        verify(personRepository, never()).findById(any());
+
+        ArgumentCaptor<PersonChangedEvent> event = ArgumentCaptor.forClass(PersonChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(PersonChangedEvent.Type.DELETED, event.getValue().getType());
+        assertEquals(testId, event.getValue().getId());
     }
 
     @Test
     public void testDeletePersonNotFound() {
-        when(personRepository.findById(testId)).thenReturn(Optional.empty());
+        when(personRepository.removeById(testId)).thenReturn(0);
 
         boolean result = personService.deletePerson(testId);
 
         assertFalse(result);
-        verify(personRepository, never()).delete(any(Person.class));
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    public void testDeleteOfQueuedPersonIsRefused() {
+        when(writeBehind.pending(testId)).thenReturn(Optional.of(testPerson));
+
+        assertThrows(PersonNotWrittenException.class, () -> personService.deletePerson(testId));
+        verify(personRepository, never()).removeById(any());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
     }
-}
\ No newline at end of file
+}
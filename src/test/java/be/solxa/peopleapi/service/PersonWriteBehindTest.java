@@ -0,0 +1,244 @@
+package be.solxa.peopleapi.service;
+
+import be.solxa.peopleapi.PeopleApiProperties;
+import be.solxa.peopleapi.event.PersonChangedEvent;
+import be.solxa.peopleapi.exception.WriteQueueFullException;
+import be.solxa.peopleapi.model.Person;
+import be.solxa.peopleapi.repository.PersonRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class PersonWriteBehindTest {
+
+    private final PersonRepository personRepository = mock(PersonRepository.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final PeopleApiProperties properties = new PeopleApiProperties();
+    private final List<Integer> groupSizes = new ArrayList<>();
+
+    private PersonWriteBehind writeBehind;
+
+    @BeforeEach
+    public void setUp() {
+        PeopleApiProperties.WriteBehind config = properties.getWriteBehind();
+        config.setEnabled(true);
+        config.setQueueCapacity(4);
+        config.setBatchSize(3);
+        config.setMaxDelay(Duration.ofMillis(50));
+        config.setOfferTimeout(Duration.ofMillis(10));
+
+        when(personRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Person> group = invocation.getArgument(0);
+            synchronized (groupSizes) {
+                groupSizes.add(group.size());
+            }
+            return group;
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (writeBehind != null) {
+            writeBehind.stop();
+        }
+    }
+
+    @Test
+    public void testQueuedPersonsAreReadableUntilWritten() throws InterruptedException {
+        CountDownLatch release = blockWrites();
+        writeBehind = newWriteBehind();
+        writeBehind.start();
+        Person person = person("Jane");
+
+        writeBehind.enqueue(person);
+        assertSame(person, writeBehind.pending(person.getId()).orElseThrow());
+
+        release.countDown();
+        writeBehind.stop();
+        assertTrue(writeBehind.pending(person.getId()).isEmpty());
+    }
+
+    @Test
+    public void testStopDrainsQueueInGroups() {
+        writeBehind = newWriteBehind();
+        writeBehind.start();
+        List<Person> persons = List.of(person("A"), person("B"), person("C"), person("D"));
+
+        persons.forEach(writeBehind::enqueue);
+        writeBehind.stop();
+
+        synchronized (groupSizes) {
+            assertEquals(4, groupSizes.stream().mapToInt(Integer::intValue).sum());
+            assertTrue(groupSizes.stream().allMatch(size -> size <= 3));
+        }
+        verify(eventPublisher, times(4)).publishEvent(any(PersonChangedEvent.class));
+        persons.forEach(person -> assertTrue(writeBehind.pending(person.getId()).isEmpty()));
+        assertThrows(WriteQueueFullException.class, () -> writeBehind.enqueue(person("E")));
+    }
+
+    @Test
+    public void testFailedGroupIsRetriedOnePersonAtATime() throws InterruptedException {
+        CountDownLatch written = new CountDownLatch(2);
+        when(personRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Person> group = invocation.getArgument(0);
+            if (group.stream().anyMatch(person -> person.getFirstName().equals("Bad"))) {
+                throw new IllegalStateException("constraint violation");
+            }
+            written.countDown();
+            return group;
+        });
+        writeBehind = newWriteBehind();
+        writeBehind.start();
+        Person bad = person("Bad");
+
+        writeBehind.enqueue(person("A"));
+        writeBehind.enqueue(bad);
+        writeBehind.enqueue(person("B"));
+
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+        writeBehind.stop();
+        verify(eventPublisher, times(2)).publishEvent(any(PersonChangedEvent.class));
+        assertTrue(writeBehind.pending(bad.getId()).isEmpty());
+    }
+
+    @Test
+    public void testPersonThatCannotBeWrittenIsKeptAsDeadLetter() {
+        when(personRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Person> group = invocation.getArgument(0);
+            if (group.stream().anyMatch(person -> person.getFirstName().equals("Bad"))) {
+                throw new IllegalStateException("constraint violation");
+            }
+            return group;
+        });
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        writeBehind = newWriteBehind();
+        writeBehind.bindTo(registry);
+        writeBehind.start();
+        Person bad = person("Bad");
+
+        writeBehind.enqueue(person("A"));
+        writeBehind.enqueue(bad);
+        writeBehind.stop();
+
+        List<PersonWriteBehind.DeadLetter> deadLetters = writeBehind.deadLetters();
+        assertEquals(1, deadLetters.size());
+        assertEquals(bad.getId(), deadLetters.getFirst().person().getId());
+        assertEquals("Bad", deadLetters.getFirst().person().getFirstName());
+        assertEquals("constraint violation", deadLetters.getFirst().error());
+        assertEquals(1.0, registry.get("people.write.behind.failed").functionCounter().count());
+        assertEquals(1.0, registry.get("people.write.behind.dead.letters").gauge().value());
+    }
+
+    @Test
+    public void testDeadLetterIsWrittenOnRetry() {
+        List<String> refused = new ArrayList<>(List.of("Bad"));
+        when(personRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Person> group = invocation.getArgument(0);
+            if (group.stream().anyMatch(person -> refused.contains(person.getFirstName()))) {
+                throw new IllegalStateException("constraint violation");
+            }
+            return group;
+        });
+        writeBehind = newWriteBehind();
+        writeBehind.start();
+        Person bad = person("Bad");
+        writeBehind.enqueue(bad);
+        writeBehind.stop();
+
+        assertEquals(new PersonWriteBehind.RetryResult(0, 1), writeBehind.retryDeadLetters());
+        assertEquals(1, writeBehind.deadLetters().size());
+
+        refused.clear();
+        assertEquals(new PersonWriteBehind.RetryResult(1, 0), writeBehind.retryDeadLetters());
+        assertTrue(writeBehind.deadLetters().isEmpty());
+        verify(eventPublisher).publishEvent(any(PersonChangedEvent.class));
+    }
+
+    @Test
+    public void testDeadLettersAreBounded() {
+        properties.getWriteBehind().setDeadLetterCapacity(2);
+        when(personRepository.saveAll(anyList())).thenThrow(new IllegalStateException("database down"));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        writeBehind = newWriteBehind();
+        writeBehind.bindTo(registry);
+        writeBehind.start();
+        List<Person> persons = List.of(person("A"), person("B"), person("C"));
+
+        persons.forEach(writeBehind::enqueue);
+        writeBehind.stop();
+
+        // The oldest is dropped to keep the latest two
+        assertEquals(List.of(persons.get(1).getId(), persons.get(2).getId()),
+                writeBehind.deadLetters().stream().map(deadLetter -> deadLetter.person().getId()).toList());
+        assertEquals(1.0, registry.get("people.write.behind.dead.letters.dropped").functionCounter().count());
+
+        assertTrue(writeBehind.discardDeadLetter(persons.get(1).getId()));
+        assertFalse(writeBehind.discardDeadLetter(persons.get(0).getId()));
+        assertEquals(1, writeBehind.deadLetters().size());
+    }
+
+    @Test
+    public void testFullQueueRejectsAfterOfferTimeout() {
+        CountDownLatch release = blockWrites();
+        writeBehind = newWriteBehind();
+        writeBehind.start();
+
+        // The writer holds at most one group while its insert is blocked, so the queue fills up
+        WriteQueueFullException rejected = null;
+        List<Person> accepted = new ArrayList<>();
+        for (int i = 0; i < 10 && rejected == null; i++) {
+            Person person = person("P" + i);
+            try {
+                writeBehind.enqueue(person);
+                accepted.add(person);
+            } catch (WriteQueueFullException e) {
+                rejected = e;
+                assertTrue(writeBehind.pending(person.getId()).isEmpty());
+            }
+        }
+
+        assertNotNull(rejected);
+        assertEquals(4, writeBehind.queued());
+        release.countDown();
+        writeBehind.stop();
+        accepted.forEach(person -> assertTrue(writeBehind.pending(person.getId()).isEmpty()));
+    }
+
+    // Makes saveAll wait until the returned latch is released
+    private CountDownLatch blockWrites() {
+        CountDownLatch release = new CountDownLatch(1);
+        when(personRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            release.await();
+            return invocation.getArgument(0);
+        });
+        return release;
+    }
+
+    private PersonWriteBehind newWriteBehind() {
+        return new PersonWriteBehind(personRepository, mock(PlatformTransactionManager.class),
+                eventPublisher, properties);
+    }
+
+    private static Person person(String firstName) {
+        Person person = new Person();
+        person.setId(UUID.randomUUID());
+        person.setFirstName(firstName);
+        person.setLastName("Doe");
+        return person;
+    }
+}
@@ -0,0 +1,97 @@
+package be.solxa.peopleapi.snapshot;
+
+import be.solxa.peopleapi.PeopleApiProperties;
+import be.solxa.peopleapi.model.NameNormalizer;
+import be.solxa.peopleapi.model.NamePhonetics;
+import be.solxa.peopleapi.model.Person;
+import be.solxa.peopleapi.repository.PersonRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+public class PersonSnapshotServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    public void testWrittenSnapshotRestoresEveryColumn() {
+        PeopleApiProperties properties = new PeopleApiProperties();
+        // Smaller than the table, so the restore sends more than one batch
+        properties.getSnapshot().setBatchSize(2);
+        PersonSnapshotService snapshots = new PersonSnapshotService(dataSource, transactionManager, properties);
+
+        Person jose = persist("José", "Müller");
+        Person jane = persist("Jane", "Smith");
+        persist("John", "Schmidt");
+        // Bumps the version, which the snapshot has to carry over
+        jane.setLastName("Smyth");
+        entityManager.flush();
+        entityManager.clear();
+        List<Person> seeded = personRepository.findAll();
+        entityManager.clear();
+
+        Path path = directory.resolve("persons.snap");
+        PersonSnapshotService.Result written = snapshots.write(path);
+        assertEquals(3, written.persons());
+
+        personRepository.deleteAllInBatch();
+        assertEquals(0, personRepository.count());
+
+        PersonSnapshotService.Result restored = snapshots.restore(path);
+        entityManager.clear();
+
+        assertEquals(3, restored.persons());
+        assertEquals(written.bytes(), restored.bytes());
+        for (Person expected : seeded) {
+            Person actual = personRepository.findById(expected.getId()).orElseThrow();
+            assertEquals(expected.getFirstName(), actual.getFirstName());
+            assertEquals(expected.getLastName(), actual.getLastName());
+            assertEquals(expected.getFirstNameSearch(), actual.getFirstNameSearch());
+            assertEquals(expected.getLastNameSearch(), actual.getLastNameSearch());
+            assertEquals(expected.getFirstNamePhonetic(), actual.getFirstNamePhonetic());
+            assertEquals(expected.getFirstNamePhoneticAlt(), actual.getFirstNamePhoneticAlt());
+            assertEquals(expected.getLastNamePhonetic(), actual.getLastNamePhonetic());
+            assertEquals(expected.getLastNamePhoneticAlt(), actual.getLastNamePhoneticAlt());
+            assertEquals(expected.getVersion(), actual.getVersion());
+        }
+        assertEquals(1L, personRepository.findById(jane.getId()).orElseThrow().getVersion());
+
+        // Found by the accent-insensitive search and the phonetic lookup, both over the derived columns
+        List<Person> byName = personRepository.search(NameNormalizer.normalize("jose"), null);
+        assertEquals(List.of(jose.getId()), byName.stream().map(Person::getId).toList());
+        List<Person> bySound = personRepository.searchByLastNamePhonetic(NamePhonetics.codes("Smith"));
+        assertTrue(bySound.stream().anyMatch(person -> person.getLastName().equals("Schmidt")));
+    }
+
+    private Person persist(String firstName, String lastName) {
+        Person person = new Person();
+        person.setFirstName(firstName);
+        person.setLastName(lastName);
+        entityManager.persist(person);
+        entityManager.flush();
+        return person;
+    }
+}
@@ -0,0 +1,70 @@
+package be.solxa.peopleapi.snapshot;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersonSnapshotTest {
+
+    @Test
+    public void testRowsRoundTrip() throws IOException {
+        List<PersonSnapshot.Row> rows = List.of(
+                new PersonSnapshot.Row(UUID.randomUUID(), "John", "Doe", 3L),
+                new PersonSnapshot.Row(UUID.randomUUID(), "Zoë", "Ørsted", null),
+                new PersonSnapshot.Row(UUID.randomUUID(), "", "", 0L));
+
+        assertEquals(rows, read(write(rows)));
+    }
+
+    @Test
+    public void testEmptySnapshot() throws IOException {
+        assertEquals(List.of(), read(write(List.of())));
+    }
+
+    @Test
+    public void testTruncatedSnapshotIsRejected() throws IOException {
+        byte[] bytes = write(List.of(
+                new PersonSnapshot.Row(UUID.randomUUID(), "John", "Doe", 1L),
+                new PersonSnapshot.Row(UUID.randomUUID(), "Jane", "Doe", 1L)));
+
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 20);
+
+        assertThrows(IOException.class, () -> read(truncated));
+    }
+
+    @Test
+    public void testOtherFileIsRejected() {
+        byte[] bytes = "first_name,last_name\nJohn,Doe\n".getBytes();
+
+        IOException e = assertThrows(IOException.class, () -> read(bytes));
+        assertEquals("Not a person snapshot", e.getMessage());
+    }
+
+    private static byte[] write(List<PersonSnapshot.Row> rows) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PersonSnapshot.Writer writer = PersonSnapshot.writer(out)) {
+            for (PersonSnapshot.Row row : rows) {
+                writer.write(row);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static List<PersonSnapshot.Row> read(byte[] bytes) throws IOException {
+        List<PersonSnapshot.Row> rows = new ArrayList<>();
+        try (PersonSnapshot.Reader reader = PersonSnapshot.reader(new ByteArrayInputStream(bytes))) {
+            for (PersonSnapshot.Row row = reader.next(); row != null; row = reader.next()) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
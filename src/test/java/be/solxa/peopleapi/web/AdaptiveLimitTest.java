@@ -0,0 +1,77 @@
+package be.solxa.peopleapi.web;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveLimitTest {
+
+    private static final long FAST = Duration.ofMillis(1).toNanos();
+    private static final long SLOW = Duration.ofMillis(200).toNanos();
+
+    private final AdaptiveLimit limit = new AdaptiveLimit(4, 2, 8, Duration.ofMillis(100), 0.5);
+
+    @Test
+    public void testRefusesOverTheLimitWithoutWaiting() {
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limit.tryAcquire());
+        }
+
+        assertFalse(limit.tryAcquire());
+        assertEquals(4, limit.getInFlight());
+    }
+
+    @Test
+    public void testFastRequestsAtTheLimitRaiseIt() {
+        for (int round = 0; round < 20; round++) {
+            int admitted = 0;
+            while (limit.tryAcquire()) {
+                admitted++;
+            }
+            for (int i = 0; i < admitted; i++) {
+                limit.release(FAST, false);
+            }
+        }
+
+        assertEquals(8, limit.getLimit());
+        assertEquals(0, limit.getInFlight());
+    }
+
+    @Test
+    public void testFastRequestsFarBelowTheLimitLeaveIt() {
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(FAST, false);
+        }
+
+        assertEquals(4, limit.getLimit());
+    }
+
+    @Test
+    public void testSlowOrFailedRequestsCutItDownToTheMinimum() {
+        assertTrue(limit.tryAcquire());
+        limit.release(SLOW, false);
+        assertEquals(2, limit.getLimit());
+
+        assertTrue(limit.tryAcquire());
+        limit.release(FAST, true);
+        assertEquals(2, limit.getLimit());
+    }
+
+    @Test
+    public void testReleaseWithoutSampleKeepsTheLimit() {
+        assertTrue(limit.tryAcquire());
+        limit.release();
+
+        assertEquals(4, limit.getLimit());
+        assertEquals(0, limit.getInFlight());
+    }
+
+    @Test
+    public void testRejectsInconsistentBounds() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveLimit(10, 2, 8, Duration.ofMillis(100), 0.5));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveLimit(4, 2, 8, Duration.ofMillis(100), 1.0));
+    }
+}
@@ -0,0 +1,136 @@
+package be.solxa.peopleapi.web;
+
+import be.solxa.peopleapi.web.AdmissionControlFilter.Compartment;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.AsyncContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionControlFilterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    public void testClassifiesRequestsIntoCompartments() {
+        assertEquals(Compartment.SEARCH, AdmissionControlFilter.classify("GET", "/api/persons"));
+        assertEquals(Compartment.SEARCH, AdmissionControlFilter.classify("GET", "/api/persons/"));
+        assertEquals(Compartment.SEARCH, AdmissionControlFilter.classify("GET", "/api/persons/count"));
+        assertEquals(Compartment.SEARCH, AdmissionControlFilter.classify("GET", "/api/persons/facets"));
+        assertEquals(Compartment.SEARCH, AdmissionControlFilter.classify("GET", "/api/persons/suggest"));
+        assertEquals(Compartment.SEARCH, AdmissionControlFilter.classify("GET", "/api/persons/export"));
+        assertEquals(Compartment.LOOKUP, AdmissionControlFilter.classify("GET", "/api/persons/0190d5c4-5a3b-7c2e-8f4a-1b2c3d4e5f60"));
+        assertEquals(Compartment.LOOKUP, AdmissionControlFilter.classify("HEAD", "/api/persons/0190d5c4-5a3b-7c2e-8f4a-1b2c3d4e5f60"));
+        assertEquals(Compartment.WRITE, AdmissionControlFilter.classify("POST", "/api/persons"));
+        assertEquals(Compartment.WRITE, AdmissionControlFilter.classify("POST", "/api/persons/batch"));
+        assertEquals(Compartment.WRITE, AdmissionControlFilter.classify("PUT", "/api/persons/0190d5c4-5a3b-7c2e-8f4a-1b2c3d4e5f60"));
+        assertEquals(Compartment.WRITE, AdmissionControlFilter.classify("DELETE", "/api/persons/0190d5c4-5a3b-7c2e-8f4a-1b2c3d4e5f60"));
+    }
+
+    @Test
+    public void testFullSearchCompartmentShedsSearchesButNotLookups() throws Exception {
+        AdmissionControlFilter filter = filter(1, Duration.ofSeconds(10));
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch leave = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> slow = executor.submit(() -> {
+                filter.doFilter(get("/api/persons"), new MockHttpServletResponse(), (request, response) -> {
+                    entered.countDown();
+                    awaitQuietly(leave);
+                });
+                return null;
+            });
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+            MockHttpServletResponse shed = new MockHttpServletResponse();
+            filter.doFilter(get("/api/persons"), shed, new MockFilterChain());
+            assertEquals(503, shed.getStatus());
+            assertEquals("1", shed.getHeader(HttpHeaders.RETRY_AFTER));
+            assertEquals(1.0, registry.get("people.admission.rejected").tag("compartment", "search").counter().count());
+
+            MockHttpServletResponse lookup = new MockHttpServletResponse();
+            filter.doFilter(get("/api/persons/0190d5c4-5a3b-7c2e-8f4a-1b2c3d4e5f60"), lookup, new MockFilterChain());
+            assertEquals(200, lookup.getStatus());
+
+            leave.countDown();
+            slow.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSlowAndFailedRequestsShrinkTheLimit() throws Exception {
+        AdmissionControlFilter filter = filter(4, Duration.ZERO);
+
+        filter.doFilter(get("/api/persons"), new MockHttpServletResponse(), (request, response) -> sleepQuietly());
+        assertEquals(2, filter.limit(Compartment.SEARCH));
+
+        AdmissionControlFilter failing = filter(4, Duration.ofSeconds(10));
+        assertThrows(IllegalStateException.class, () -> failing.doFilter(get("/api/persons"),
+                new MockHttpServletResponse(), (request, response) -> {
+                    throw new IllegalStateException("Database down");
+                }));
+        assertEquals(2, failing.limit(Compartment.SEARCH));
+        assertEquals(4, failing.limit(Compartment.LOOKUP));
+    }
+
+    @Test
+    public void testExportKeepsItsSlotUntilCompleteWithoutAdaptingTheLimit() throws Exception {
+        AdmissionControlFilter filter = filter(4, Duration.ZERO);
+        MockHttpServletRequest request = get("/api/persons/export");
+        request.setAsyncSupported(true);
+        AsyncContext[] async = new AsyncContext[1];
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> async[0] = req.startAsync());
+        assertEquals(1.0, registry.get("people.admission.in.flight").tag("compartment", "search").gauge().value());
+
+        sleepQuietly();
+        async[0].complete();
+        assertEquals(0.0, registry.get("people.admission.in.flight").tag("compartment", "search").gauge().value());
+        assertEquals(4, filter.limit(Compartment.SEARCH));
+    }
+
+    private AdmissionControlFilter filter(int limit, Duration latencyThreshold) {
+        registry.clear();
+        AdaptiveLimit search = new AdaptiveLimit(limit, 1, limit, latencyThreshold, 0.5);
+        AdaptiveLimit lookup = new AdaptiveLimit(limit, 1, limit, latencyThreshold, 0.5);
+        AdaptiveLimit write = new AdaptiveLimit(limit, 1, limit, latencyThreshold, 0.5);
+        return new AdmissionControlFilter(
+                Map.of(Compartment.SEARCH, search, Compartment.LOOKUP, lookup, Compartment.WRITE, write), registry);
+    }
+
+    private static MockHttpServletRequest get(String uri) {
+        return new MockHttpServletRequest("GET", uri);
+    }
+
+    private static void sleepQuietly() {
+        try {
+            Thread.sleep(2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package be.solxa.peopleapi.web;
+
+import jakarta.servlet.AsyncContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkheadFilterTest {
+
+    @Test
+    public void testRejectsWhenAllSlotsAreTaken() throws Exception {
+        BulkheadFilter filter = new BulkheadFilter(1, Duration.ofMillis(50));
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch leave = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> slow = executor.submit(() -> {
+                filter.doFilter(new MockHttpServletRequest("GET", "/api/persons"), new MockHttpServletResponse(),
+                        (request, response) -> {
+                            entered.countDown();
+                            awaitQuietly(leave);
+                        });
+                return null;
+            });
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+            MockHttpServletResponse rejected = new MockHttpServletResponse();
+            filter.doFilter(new MockHttpServletRequest("GET", "/api/persons"), rejected, new MockFilterChain());
+            assertEquals(503, rejected.getStatus());
+            assertEquals("1", rejected.getHeader(HttpHeaders.RETRY_AFTER));
+
+            leave.countDown();
+            slow.get(5, TimeUnit.SECONDS);
+
+            MockHttpServletResponse admitted = new MockHttpServletResponse();
+            filter.doFilter(new MockHttpServletRequest("GET", "/api/persons"), admitted, new MockFilterChain());
+            assertEquals(200, admitted.getStatus());
+            assertEquals(1, filter.availablePermits());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testAsyncRequestKeepsSlotUntilComplete() throws Exception {
+        BulkheadFilter filter = new BulkheadFilter(1, Duration.ofMillis(50));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/persons/export");
+        request.setAsyncSupported(true);
+        AsyncContext[] async = new AsyncContext[1];
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> async[0] = req.startAsync());
+        assertEquals(0, filter.availablePermits());
+
+        async[0].complete();
+        assertEquals(1, filter.availablePermits());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}